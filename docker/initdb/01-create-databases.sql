@@ -0,0 +1,7 @@
+-- Executado só na primeira subida do volume pgdata.
+CREATE DATABASE banco;
+
+-- Bancos locais para testar o modo sharding (profile "sharded")
+CREATE DATABASE banco_shard0;
+CREATE DATABASE banco_shard1;
+CREATE DATABASE banco_shard2;
@@ -0,0 +1,106 @@
+#!/usr/bin/env bash
+# =============================================================================
+# Tempo de subida e RSS: "antes" x "depois"
+#
+#   antes:  jar comum, ddl-auto=update (introspecção de schema), log SQL/bind (profile dev)
+#   depois: profile prod + Spring AOT (-Pprod) + arquivo CDS (treinado no próprio jar)
+#
+# Pré-requisitos: JDK 21 e Postgres local com o banco "banco"
+#   docker compose -f docker/docker-compose.yml up -d
+#
+# Uso: scripts/startup-benchmark.sh [execuções por modo, padrão 5]
+#   PORT=8080          porta usada nas medições
+#   JAVA_HOME=...      JDK usado para rodar a aplicação
+#
+# "pronto (ms)" = do exec da JVM até a primeira resposta HTTP (inclui o warm-up
+# do primeiro request); "Started (s)" = o que o Spring loga; RSS medido logo após.
+# Resultados brutos em target/startup-bench/results.txt
+# =============================================================================
+set -euo pipefail
+
+RUNS=${1:-5}
+PORT=${PORT:-8080}
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+OUT="$ROOT/target/startup-bench"
+JAR=simula-transacao-0.0.1-SNAPSHOT.jar
+JAVA="${JAVA_HOME:+$JAVA_HOME/bin/}java"
+
+cd "$ROOT"
+# os dois builds fazem clean (apagam target/): o jar "antes" espera fora de target/
+STAGE=$(mktemp -d)
+trap 'rm -rf "$STAGE"' EXIT
+
+echo ">> build antes (jar comum)"
+sh "$ROOT/mvnw" -q -B -DskipTests clean package
+cp "target/$JAR" "$STAGE/before.jar"
+
+echo ">> build depois (-Pprod: Spring AOT)"
+sh "$ROOT/mvnw" -q -B -DskipTests -Pprod clean package
+mkdir -p "$OUT"
+mv "$STAGE/before.jar" "$OUT/before.jar"
+"$JAVA" -Djarmode=tools -jar "target/$JAR" extract --destination "$OUT/after" > /dev/null
+
+echo ">> treino do arquivo CDS"
+# sobe o contexto até o refresh e sai, gravando as classes carregadas em app.jsa.
+# Precisa do banco (Flyway roda no refresh; com AOT não dá para desligá-lo em runtime).
+# O caminho do jar tem que ser o mesmo no treino e na execução, senão a JVM ignora o arquivo.
+if ! "$JAVA" -XX:ArchiveClassesAtExit="$OUT/after/app.jsa" \
+    -Dspring.aot.enabled=true -Dspring.profiles.active=prod -Dspring.context.exit=onRefresh \
+    -jar "$OUT/after/$JAR" > "$OUT/cds-training.log" 2>&1; then
+    echo "!! treino CDS falhou (Postgres no ar?), ver $OUT/cds-training.log" >&2
+    exit 1
+fi
+
+measure() {
+    local label=$1; shift
+    for i in $(seq 1 "$RUNS"); do
+        local log="$OUT/$label-$i.log"
+        local start; start=$(date +%s%N)
+        "$JAVA" -Dserver.port="$PORT" "$@" > "$log" 2>&1 &
+        local pid=$!
+
+        until [ "$(curl -s -o /dev/null -w '%{http_code}' "http://localhost:$PORT/actuator/health" || true)" != "000" ]; do
+            if ! kill -0 "$pid" 2> /dev/null; then
+                echo "!! $label: a aplicação não subiu, ver $log" >&2
+                exit 1
+            fi
+            sleep 0.02
+        done
+
+        local ready_ms=$(( ($(date +%s%N) - start) / 1000000 ))
+        local rss_kb; rss_kb=$(ps -o rss= -p "$pid" | tr -d ' ')
+        local started; started=$(grep -oE 'Started [A-Za-z]+ in [0-9.]+' "$log" | grep -oE '[0-9.]+$' || echo "?")
+
+        kill "$pid"
+        wait "$pid" 2> /dev/null || true
+        echo "$label $i $ready_ms $started $rss_kb" >> "$OUT/results.txt"
+    done
+}
+
+median() {
+    # mediana da coluna $2 para o modo $1
+    awk -v m="$1" '$1 == m { print $'"$2"' }' "$OUT/results.txt" | sort -n | awk '
+        { v[NR] = $1 }
+        END { if (NR % 2) print v[(NR + 1) / 2]; else print (v[NR / 2] + v[NR / 2 + 1]) / 2 }'
+}
+
+echo ">> medindo antes ($RUNS execuções)"
+measure before \
+    -Dspring.profiles.active=dev \
+    -Dspring.jpa.hibernate.ddl-auto=update \
+    -Dspring.flyway.enabled=false \
+    -jar "$OUT/before.jar"
+
+echo ">> medindo depois ($RUNS execuções)"
+measure after \
+    -XX:SharedArchiveFile="$OUT/after/app.jsa" \
+    -Dspring.aot.enabled=true \
+    -Dspring.profiles.active=prod \
+    -jar "$OUT/after/$JAR"
+
+echo
+printf '%-8s %12s %12s %10s\n' "modo" "pronto (ms)" "Started (s)" "RSS (MB)"
+for mode in before after; do
+    printf '%-8s %12s %12s %10s\n' "$mode" \
+        "$(median "$mode" 3)" "$(median "$mode" 4)" "$(( $(median "$mode" 5 | cut -d. -f1) / 1024 ))"
+done
@@ -2,10 +2,12 @@ package com.jrpbjr.transacao;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.cloud.openfeign.EnableFeignClients;
 
 @SpringBootApplication
 @EnableFeignClients
+@ConfigurationPropertiesScan
 public class SimulaTransacaoApplication {
 
     public static void main(String[] args) {
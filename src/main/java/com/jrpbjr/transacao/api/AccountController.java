@@ -1,9 +1,13 @@
 package com.jrpbjr.transacao.api;
 
 import com.jrpbjr.transacao.service.AccountService;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -21,4 +25,9 @@ public class AccountController {
     public ResponseEntity<AccountResponse> getById(@PathVariable Long id) {
         return ResponseEntity.ok(service.findById(id));
     }
+
+    @PostMapping
+    public ResponseEntity<AccountResponse> create(@Valid @RequestBody CreateAccountRequest request) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(service.create(request));
+    }
 }
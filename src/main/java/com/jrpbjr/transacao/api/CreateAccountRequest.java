@@ -0,0 +1,14 @@
+package com.jrpbjr.transacao.api;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.math.BigDecimal;
+
+public record CreateAccountRequest(
+        @NotBlank @Size(max = 20) String cpf,
+        @NotBlank @Size(max = 120) String nome,
+        @NotNull @DecimalMin(value = "0.00") BigDecimal saldoInicial
+) {}
@@ -1,7 +1,10 @@
 package com.jrpbjr.transacao.api;
 
+import com.jrpbjr.transacao.ratelimit.PaymentRateLimiter;
 import com.jrpbjr.transacao.service.PaymentAppService;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -13,13 +16,22 @@ import org.springframework.web.bind.annotation.RestController;
 public class PaymentController {
 
     private final PaymentAppService service;
+    private final PaymentRateLimiter rateLimiter;
 
-    public PaymentController(PaymentAppService service) {
+    public PaymentController(PaymentAppService service, PaymentRateLimiter rateLimiter) {
         this.service = service;
+        this.rateLimiter = rateLimiter;
     }
 
     @PostMapping
     public ResponseEntity<PaymentResponse> pay(@Valid @RequestBody CreatePaymentRequest request) {
+        // admission control antes de tocar no banco: sobrecarga responde 429 na hora
+        var admission = rateLimiter.tryAcquire(request.correntistaId(), request.type());
+        if (!admission.allowed()) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(admission.retryAfterSeconds()))
+                    .build();
+        }
         return ResponseEntity.ok(service.createAndProcess(request));
     }
 }
@@ -2,11 +2,9 @@ package com.jrpbjr.transacao.domain;
 
 
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
 import jakarta.persistence.Column;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Version;
 
 import java.math.BigDecimal;
@@ -15,8 +13,8 @@ import java.math.BigDecimal;
 @Table(name = "correntista")
 public class Correntista {
 
+    // id global, alocado pelo CorrentistaCatalog (é a chave de roteamento entre shards)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
     @Version
@@ -33,7 +31,8 @@ public class Correntista {
 
     protected Correntista() {}
 
-    public Correntista(String cpf, String nome, BigDecimal saldo) {
+    public Correntista(Long id, String cpf, String nome, BigDecimal saldo) {
+        this.id = id;
         this.cpf = cpf;
         this.nome = nome;
         this.saldo = saldo == null ? BigDecimal.ZERO : saldo;
@@ -10,6 +10,8 @@ import java.util.UUID;
 @Table(name = "pagamento")
 public class Pagamento {
 
+    private static final int MENSAGEM_MAX = 255;
+
     @Id
     private UUID id;
 
@@ -37,7 +39,7 @@ public class Pagamento {
     @Column(nullable = false)
     private boolean debitApplied;
 
-    @Column(length = 255)
+    @Column(length = MENSAGEM_MAX)
     private String mensagem;
 
     @Column(name = "idempotency_key", length = 120)
@@ -70,6 +72,11 @@ public class Pagamento {
     public String getIdempotencyKey() { return idempotencyKey;}
 
     public void markDebitApplied() { this.debitApplied = true; }
-    public void aprovado(String msg) { this.status = PaymentStatus.APPROVED; this.mensagem = msg; }
-    public void rejeitado(String msg) { this.status = PaymentStatus.REJECTED; this.mensagem = msg; }
+    public void aprovado(String msg) { this.status = PaymentStatus.APPROVED; this.mensagem = limita(msg); }
+    public void rejeitado(String msg) { this.status = PaymentStatus.REJECTED; this.mensagem = limita(msg); }
+
+    // mensagem vem de fora (ex: erro do Feign); estourar a coluna derrubaria a TX de estorno
+    private static String limita(String msg) {
+        return msg != null && msg.length() > MENSAGEM_MAX ? msg.substring(0, MENSAGEM_MAX) : msg;
+    }
 }
\ No newline at end of file
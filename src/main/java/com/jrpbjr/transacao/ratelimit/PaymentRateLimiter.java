@@ -0,0 +1,152 @@
+package com.jrpbjr.transacao.ratelimit;
+
+import com.jrpbjr.transacao.domain.PaymentType;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admission control na entrada de {@code POST /api/payments}.
+ *
+ * - chave: (correntistaId, PaymentType), um {@link TokenBucket} por chave
+ * - estrutura em faixas (stripes) com lock próprio: contas diferentes quase
+ *   nunca disputam o mesmo lock; {@link ReentrantLock} para não fixar virtual thread
+ * - sem balde disponível: resposta imediata (429 + Retry-After), antes de
+ *   qualquer acesso ao banco, em vez de enfileirar no pool/optimistic lock
+ * - baldes cheios são descartados quando a faixa cresce, então a memória
+ *   acompanha só as contas ativas
+ */
+@Component
+public class PaymentRateLimiter {
+
+    private static final int SWEEP_THRESHOLD = 1024;
+
+    private final boolean enabled;
+    private final Stripe[] stripes;
+    private volatile Map<PaymentType, RateLimitProperties.Limit> limits;
+    private final MeterRegistry meterRegistry;
+
+    public PaymentRateLimiter(RateLimitProperties props, MeterRegistry meterRegistry) {
+        if (props.stripes() <= 0) throw new IllegalArgumentException("app.rate-limit.stripes deve ser > 0");
+        this.enabled = props.enabled();
+        this.limits = Collections.unmodifiableMap(copy(props.limits()));
+        this.meterRegistry = meterRegistry;
+        this.stripes = new Stripe[props.stripes()];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+
+        for (PaymentType type : PaymentType.values()) {
+            Gauge.builder("payment.admission.limit.capacity", this, l -> capacityOf(l.limits.get(type)))
+                    .tag("type", type.name())
+                    .register(meterRegistry);
+            Gauge.builder("payment.admission.limit.refill", this, l -> refillOf(l.limits.get(type)))
+                    .tag("type", type.name())
+                    .baseUnit("tokens/s")
+                    .register(meterRegistry);
+        }
+        Gauge.builder("payment.admission.buckets", this, PaymentRateLimiter::trackedBuckets)
+                .register(meterRegistry);
+    }
+
+    public Decision tryAcquire(Long correntistaId, PaymentType type) {
+        var limit = limits.get(type);
+        if (!enabled || limit == null) {
+            return Decision.ALLOWED;
+        }
+
+        var key = new Key(correntistaId, type);
+        var stripe = stripes[Math.floorMod(key.hashCode(), stripes.length)];
+        long now = System.nanoTime();
+        long waitNanos;
+
+        stripe.lock.lock();
+        try {
+            if (stripe.buckets.size() >= SWEEP_THRESHOLD) {
+                stripe.sweep(limits, now);
+            }
+            waitNanos = stripe.buckets
+                    .computeIfAbsent(key, k -> new TokenBucket(limit, now))
+                    .tryConsume(limit, now);
+        } finally {
+            stripe.lock.unlock();
+        }
+
+        boolean allowed = waitNanos == 0;
+        meterRegistry.counter("payment.admission", "type", type.name(), "outcome", allowed ? "accepted" : "rejected")
+                .increment();
+        return allowed ? Decision.ALLOWED : new Decision(false, Duration.ofNanos(waitNanos));
+    }
+
+    public Map<PaymentType, RateLimitProperties.Limit> limits() {
+        return limits;
+    }
+
+    /** Troca o limite de um tipo em runtime; vale para os baldes já existentes. */
+    public synchronized void updateLimit(PaymentType type, RateLimitProperties.Limit limit) {
+        var next = copy(limits);
+        next.put(type, limit);
+        limits = Collections.unmodifiableMap(next);
+    }
+
+    private int trackedBuckets() {
+        int total = 0;
+        for (Stripe s : stripes) {
+            s.lock.lock();
+            try {
+                total += s.buckets.size();
+            } finally {
+                s.lock.unlock();
+            }
+        }
+        return total;
+    }
+
+    private static EnumMap<PaymentType, RateLimitProperties.Limit> copy(Map<PaymentType, RateLimitProperties.Limit> m) {
+        var copy = new EnumMap<PaymentType, RateLimitProperties.Limit>(PaymentType.class);
+        copy.putAll(m);
+        return copy;
+    }
+
+    private static double capacityOf(RateLimitProperties.Limit limit) {
+        return limit == null ? Double.NaN : limit.capacity();
+    }
+
+    private static double refillOf(RateLimitProperties.Limit limit) {
+        return limit == null ? Double.NaN : limit.refillPerSecond();
+    }
+
+    /**
+     * @param retryAfter tempo até haver token (só quando {@code allowed=false})
+     */
+    public record Decision(boolean allowed, Duration retryAfter) {
+        static final Decision ALLOWED = new Decision(true, Duration.ZERO);
+
+        /** Valor do header Retry-After (segundos inteiros, mínimo 1). */
+        public long retryAfterSeconds() {
+            long secs = (retryAfter.toMillis() + 999) / 1000;
+            return Math.max(1, secs);
+        }
+    }
+
+    private record Key(Long correntistaId, PaymentType type) {}
+
+    private static final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        final Map<Key, TokenBucket> buckets = new HashMap<>();
+
+        void sweep(Map<PaymentType, RateLimitProperties.Limit> limits, long now) {
+            buckets.entrySet().removeIf(e -> {
+                var limit = limits.get(e.getKey().type());
+                return limit == null || e.getValue().isFull(limit, now);
+            });
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.jrpbjr.transacao.ratelimit;
+
+import com.jrpbjr.transacao.domain.PaymentType;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Limites de admission control em runtime (endpoint do actuator {@code ratelimits}).
+ *
+ * É actuator, e não API, de propósito: a exposição é controlada por
+ * {@code management.endpoints.web.exposure.*} e pode ficar numa porta de
+ * management interna ({@code management.server.port}), longe dos clientes
+ * que o limite protege. Não há remoção de limite: desligar o admission
+ * control é configuração ({@code app.rate-limit.enabled}), não uma chamada.
+ *
+ * - {@code GET  /actuator/ratelimits}
+ * - {@code GET  /actuator/ratelimits/{type}}
+ * - {@code POST /actuator/ratelimits/{type}} com {@code {"capacity": 50, "refillPerSecond": 20}}
+ */
+@Component
+@Endpoint(id = "ratelimits")
+public class RateLimitEndpoint {
+
+    private final PaymentRateLimiter rateLimiter;
+
+    public RateLimitEndpoint(PaymentRateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @ReadOperation
+    public Map<PaymentType, RateLimitProperties.Limit> limits() {
+        return rateLimiter.limits();
+    }
+
+    @ReadOperation
+    public RateLimitProperties.Limit limit(@Selector PaymentType type) {
+        return rateLimiter.limits().get(type);
+    }
+
+    @WriteOperation
+    public RateLimitProperties.Limit update(@Selector PaymentType type, int capacity, double refillPerSecond) {
+        RateLimitProperties.Limit limit;
+        try {
+            limit = new RateLimitProperties.Limit(capacity, refillPerSecond);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidEndpointRequestException(e.getMessage(), e.getMessage());
+        }
+        rateLimiter.updateLimit(type, limit);
+        return limit;
+    }
+}
@@ -0,0 +1,39 @@
+package com.jrpbjr.transacao.ratelimit;
+
+import com.jrpbjr.transacao.domain.PaymentType;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Admission control de pagamentos (prefixo {@code app.rate-limit}).
+ *
+ * Um token bucket por (correntistaId, PaymentType). Tipo sem limite
+ * configurado não é limitado. Os limites iniciais vêm daqui; em runtime
+ * são alterados pelo endpoint do actuator {@code ratelimits} ({@link RateLimitEndpoint}).
+ */
+@ConfigurationProperties("app.rate-limit")
+public record RateLimitProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("64") int stripes,
+        Map<PaymentType, Limit> limits
+) {
+
+    public RateLimitProperties {
+        limits = limits == null || limits.isEmpty() ? Map.of() : new EnumMap<>(limits);
+    }
+
+    /**
+     * @param capacity        rajada máxima (tokens no balde cheio)
+     * @param refillPerSecond taxa sustentada (tokens por segundo)
+     */
+    public record Limit(int capacity, double refillPerSecond) {
+
+        public Limit {
+            if (capacity < 1) throw new IllegalArgumentException("capacity deve ser >= 1");
+            if (refillPerSecond <= 0) throw new IllegalArgumentException("refillPerSecond deve ser > 0");
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.jrpbjr.transacao.ratelimit;
+
+/**
+ * Token bucket sem sincronização própria: quem chama segura o lock da faixa.
+ * O limite é passado a cada chamada, então mudar o limite em runtime vale
+ * imediatamente para os baldes existentes.
+ */
+final class TokenBucket {
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    TokenBucket(RateLimitProperties.Limit limit, long nowNanos) {
+        this.tokens = limit.capacity();
+        this.lastRefillNanos = nowNanos;
+    }
+
+    /** @return 0 se consumiu um token; senão, nanos até haver um token disponível */
+    long tryConsume(RateLimitProperties.Limit limit, long nowNanos) {
+        refill(limit, nowNanos);
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / limit.refillPerSecond() * 1_000_000_000L);
+    }
+
+    /** Balde cheio equivale a um balde novo, então pode ser descartado. */
+    boolean isFull(RateLimitProperties.Limit limit, long nowNanos) {
+        refill(limit, nowNanos);
+        return tokens >= limit.capacity();
+    }
+
+    private void refill(RateLimitProperties.Limit limit, long nowNanos) {
+        long elapsed = nowNanos - lastRefillNanos;
+        if (elapsed > 0) {
+            tokens = Math.min(limit.capacity(), tokens + elapsed / 1e9 * limit.refillPerSecond());
+            lastRefillNanos = nowNanos;
+        } else {
+            tokens = Math.min(limit.capacity(), tokens);
+        }
+    }
+}
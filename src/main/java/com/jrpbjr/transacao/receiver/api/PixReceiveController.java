@@ -1,7 +1,9 @@
 package com.jrpbjr.transacao.receiver.api;
 
+import com.jrpbjr.transacao.repository.CorrentistaCatalog;
 import com.jrpbjr.transacao.repository.CorrentistaRepository;
-import jakarta.persistence.OptimisticLockException;
+import com.jrpbjr.transacao.retry.ContentionRetry;
+import com.jrpbjr.transacao.sharding.ShardRouter;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -14,9 +16,16 @@ import java.math.BigDecimal;
 public class PixReceiveController {
 
     private final CorrentistaRepository repo;
+    private final CorrentistaCatalog catalog;
+    private final ShardRouter shardRouter;
+    private final ContentionRetry retry;
 
-    public PixReceiveController(CorrentistaRepository repo) {
+    public PixReceiveController(CorrentistaRepository repo, CorrentistaCatalog catalog,
+                                ShardRouter shardRouter, ContentionRetry retry) {
         this.repo = repo;
+        this.catalog = catalog;
+        this.shardRouter = shardRouter;
+        this.retry = retry;
     }
 
     @PostMapping("/receive")
@@ -28,27 +37,26 @@ public class PixReceiveController {
             return new ReceivePixResponse(false, "ReceiverKey inválida");
         }
 
-        // receiverKey = CPF (simples)
-        var receiver = repo.findByCpf(req.receiverKey())
+        // receiverKey = CPF (simples). CPF -> id pelo catálogo global; o crédito roda no shard de hash(id)
+        var receiverId = shardRouter.onCatalog(() -> catalog.findIdByCpf(req.receiverKey()))
                 .orElse(null);
 
-        if (receiver == null) {
+        if (receiverId == null) {
             return new ReceivePixResponse(false, "Destinatário não encontrado");
         }
 
-        // crédito (optimistic lock via @Version)
-        int attempts = 0;
-        while (true) {
-            try {
-                receiver.creditar(req.amount());
-                repo.save(receiver);
-                return new ReceivePixResponse(true, "Crédito aplicado para CPF " + req.receiverKey());
-            } catch (OptimisticLockException e) {
-                attempts++;
-                if (attempts >= 3) throw e;
-                try { Thread.sleep(30L * attempts); } catch (InterruptedException ignored) {}
-            }
-        }
+        return shardRouter.onShard(receiverId, () -> credit(receiverId, req));
+    }
+
+    private ReceivePixResponse credit(Long receiverId, ReceivePixRequest req) {
+        // crédito (optimistic lock via @Version); cada tentativa relê o saldo/versão atual
+        retry.run("pix-receive", receiverId, () -> {
+            var current = repo.findById(receiverId)
+                    .orElseThrow(() -> new IllegalStateException("Destinatário não encontrado"));
+            current.creditar(req.amount());
+            repo.save(current);
+        });
+        return new ReceivePixResponse(true, "Crédito aplicado para CPF " + req.receiverKey());
     }
 
     public record ReceivePixRequest(String receiverKey, BigDecimal amount, String fromCpf) {}
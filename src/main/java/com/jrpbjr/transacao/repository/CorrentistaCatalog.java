@@ -0,0 +1,55 @@
+package com.jrpbjr.transacao.repository;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+/**
+ * Catálogo global de correntistas (tabelas {@code id_alocador} e {@code correntista_cpf}).
+ *
+ * Com sharding, só o catálogo do shard de catálogo vale: chame sempre dentro de
+ * {@code ShardRouter.onCatalog}. Sem sharding é o próprio banco único.
+ */
+@Repository
+public class CorrentistaCatalog {
+
+    private final JdbcTemplate jdbc;
+
+    public CorrentistaCatalog(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /** Próximo id de correntista; o update trava a linha, então ids nunca se repetem. */
+    @Transactional
+    public long nextId() {
+        jdbc.update("UPDATE id_alocador SET proximo = proximo + 1 WHERE nome = 'correntista'");
+        Long next = jdbc.queryForObject("SELECT proximo FROM id_alocador WHERE nome = 'correntista'", Long.class);
+        return next - 1;
+    }
+
+    /** Reserva o CPF para a conta; {@code false} se já pertence a outra. */
+    @Transactional
+    public boolean registerCpf(String cpf, long correntistaId) {
+        try {
+            jdbc.update("INSERT INTO correntista_cpf (cpf, correntista_id) VALUES (?, ?)", cpf, correntistaId);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    @Transactional
+    public boolean unregisterCpf(String cpf) {
+        return jdbc.update("DELETE FROM correntista_cpf WHERE cpf = ?", cpf) > 0;
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<Long> findIdByCpf(String cpf) {
+        return jdbc.queryForList("SELECT correntista_id FROM correntista_cpf WHERE cpf = ?", Long.class, cpf)
+                .stream()
+                .findFirst();
+    }
+}
@@ -3,8 +3,6 @@ package com.jrpbjr.transacao.repository;
 import com.jrpbjr.transacao.domain.Correntista;
 import org.springframework.data.jpa.repository.JpaRepository;
 
-import java.util.Optional;
-
+// busca por CPF só pelo CorrentistaCatalog: aqui ela enxergaria apenas o shard corrente
 public interface CorrentistaRepository extends JpaRepository<Correntista, Long> {
-    Optional<Correntista> findByCpf(String cpf);
 }
\ No newline at end of file
@@ -2,10 +2,24 @@ package com.jrpbjr.transacao.repository;
 
 import com.jrpbjr.transacao.domain.Pagamento;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.Optional;
 import java.util.UUID;
 
 public interface PagamentoRepository extends JpaRepository<Pagamento, UUID> {
-    Optional<Pagamento> findByIdempotencyKey(String idempotencyKey);
-}
\ No newline at end of file
+
+    // idempotência vale só para PIX (tabela pix_idempotencia); cartão/boleto podem repetir a chave
+    @Query(value = """
+            SELECT p.* FROM pagamento p
+              JOIN pix_idempotencia i ON i.pagamento_id = p.id
+             WHERE i.idempotency_key = :idempotencyKey""", nativeQuery = true)
+    Optional<Pagamento> findPixByIdempotencyKey(String idempotencyKey);
+
+    /** Reserva a chave para o PIX; chave já usada -> DataIntegrityViolationException. */
+    @Modifying
+    @Query(value = "INSERT INTO pix_idempotencia (idempotency_key, pagamento_id) VALUES (:idempotencyKey, :pagamentoId)",
+            nativeQuery = true)
+    void reservePixIdempotencyKey(String idempotencyKey, UUID pagamentoId);
+}
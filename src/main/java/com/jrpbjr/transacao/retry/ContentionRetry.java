@@ -0,0 +1,145 @@
+package com.jrpbjr.transacao.retry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.OptimisticLockException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.sql.SQLTransientException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Retry para conflito de versão (@Version) em operações de saldo.
+ *
+ * - backoff exponencial com full jitter: requisições que colidiram não voltam juntas
+ * - orçamento por conta ({@link RetryBudget}): conta quente não vira tempestade de retries
+ * - compensação ({@link #compensate}) fora do orçamento, com mais tentativas e
+ *   insistindo também em falha transitória de banco (ex: timeout do pool):
+ *   estorno/finalização que desiste deixa dinheiro preso ou pagamento pendurado,
+ *   pior do que insistir na conta quente
+ * - espera com {@code Thread.sleep}, pensada para virtual threads
+ *   ({@code spring.threads.virtual.enabled=true}): o sleep desmonta a virtual
+ *   thread e não prende thread de plataforma
+ * - interrupção não é engolida: a flag é restaurada e o conflito é propagado
+ *
+ * A ação é reexecutada inteira a cada tentativa, então precisa reler o estado
+ * (tipicamente uma TX curta inteira).
+ */
+@Component
+public class ContentionRetry {
+
+    private final RetryProperties props;
+    private final RetryBudget budget;
+    private final MeterRegistry meterRegistry;
+
+    public ContentionRetry(RetryProperties props, MeterRegistry meterRegistry) {
+        if (props.maxAttempts() < 1) throw new IllegalArgumentException("app.retry.max-attempts deve ser >= 1");
+        if (props.compensationMaxAttempts() < 1) {
+            throw new IllegalArgumentException("app.retry.compensation-max-attempts deve ser >= 1");
+        }
+        this.props = props;
+        this.budget = new RetryBudget(props.budget());
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void run(String operation, Object accountKey, Runnable action) {
+        execute(operation, accountKey, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public <T> T execute(String operation, Object accountKey, Supplier<T> action) {
+        return execute(operation, accountKey, action, props.maxAttempts(), props.budget().enabled(), false);
+    }
+
+    /**
+     * Compensação (estorno, finalização depois do crédito): sem orçamento, com
+     * {@code compensationMaxAttempts} tentativas e repetindo também falha transitória.
+     */
+    public void compensate(String operation, Object accountKey, Runnable action) {
+        execute(operation, accountKey, () -> {
+            action.run();
+            return null;
+        }, props.compensationMaxAttempts(), false, true);
+    }
+
+    private <T> T execute(String operation, Object accountKey, Supplier<T> action,
+                          int maxAttempts, boolean useBudget, boolean retryTransient) {
+        int attempt = 1;
+        while (true) {
+            try {
+                T result = action.get();
+                if (useBudget) budget.onSuccess(accountKey);
+                return result;
+            } catch (RuntimeException e) {
+                if (!isConflict(e) && !(retryTransient && isTransient(e))) throw e;
+
+                meterRegistry.counter("payment.retry.conflicts", "operation", operation).increment();
+
+                if (attempt >= maxAttempts) {
+                    meterRegistry.counter("payment.retry.exhausted", "operation", operation).increment();
+                    throw e;
+                }
+                if (useBudget && !budget.tryAcquireRetry(accountKey)) {
+                    meterRegistry.counter("payment.retry.budget.rejected", "operation", operation).increment();
+                    throw e;
+                }
+                if (!sleep(backoff(attempt))) {
+                    throw e;
+                }
+                attempt++;
+            }
+        }
+    }
+
+    /**
+     * Full jitter: aleatório em [0, min(maxDelay, baseDelay * 2^(attempt-1))].
+     * LINEAR: baseDelay * attempt, sem jitter (comportamento antigo, só para comparação).
+     */
+    Duration backoff(int attempt) {
+        long base = props.baseDelay().toNanos();
+        long cap = props.maxDelay().toNanos();
+        if (props.backoff() == RetryProperties.Backoff.LINEAR) {
+            return Duration.ofNanos(Math.min(cap, base * attempt));
+        }
+        int shift = Math.min(attempt - 1, 30);
+        long ceiling = base > (cap >> shift) ? cap : Math.min(cap, base << shift);
+        return Duration.ofNanos(ThreadLocalRandom.current().nextLong(ceiling + 1));
+    }
+
+    private boolean sleep(Duration delay) {
+        try {
+            Thread.sleep(delay);
+            return true;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // conexão não obtida (pool esgotado/timeout) ou erro transitório do banco: nada foi gravado
+    static boolean isTransient(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof TransientDataAccessException
+                    || t instanceof CannotCreateTransactionException
+                    || t instanceof SQLTransientException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean isConflict(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof OptimisticLockingFailureException || t instanceof OptimisticLockException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
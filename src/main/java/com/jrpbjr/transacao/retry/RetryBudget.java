@@ -0,0 +1,55 @@
+package com.jrpbjr.transacao.retry;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Orçamento de retries por conta, em memória e com tamanho fixo.
+ *
+ * A conta cai numa faixa (stripe) por hash; cada faixa é um token bucket em
+ * milésimos de token: um retry gasta 1 token, um sucesso devolve
+ * {@code tokensPerSuccess}. Conta quente em conflito contínuo esgota o
+ * orçamento e passa a falhar na hora, em vez de multiplicar a disputa
+ * pela mesma linha. Contas diferentes na mesma faixa dividem o orçamento (aceitável).
+ */
+class RetryBudget {
+
+    private static final int SCALE = 1000;
+
+    private final AtomicIntegerArray tokens;
+    private final int max;
+    private final int perSuccess;
+
+    RetryBudget(RetryProperties.Budget cfg) {
+        if (cfg.stripes() <= 0) throw new IllegalArgumentException("stripes deve ser > 0");
+        this.tokens = new AtomicIntegerArray(cfg.stripes());
+        this.max = cfg.maxTokens() * SCALE;
+        this.perSuccess = (int) Math.round(cfg.tokensPerSuccess() * SCALE);
+        for (int i = 0; i < cfg.stripes(); i++) {
+            tokens.set(i, max);
+        }
+    }
+
+    boolean tryAcquireRetry(Object key) {
+        int i = stripe(key);
+        while (true) {
+            int current = tokens.get(i);
+            if (current < SCALE) return false;
+            if (tokens.compareAndSet(i, current, current - SCALE)) return true;
+        }
+    }
+
+    void onSuccess(Object key) {
+        int i = stripe(key);
+        while (true) {
+            int current = tokens.get(i);
+            if (current >= max) return;
+            if (tokens.compareAndSet(i, current, Math.min(max, current + perSuccess))) return;
+        }
+    }
+
+    private int stripe(Object key) {
+        int h = key == null ? 0 : key.hashCode();
+        h ^= (h >>> 16);
+        return Math.floorMod(h, tokens.length());
+    }
+}
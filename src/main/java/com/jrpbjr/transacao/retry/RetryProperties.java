@@ -0,0 +1,36 @@
+package com.jrpbjr.transacao.retry;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Retry de conflito de optimistic lock (prefixo {@code app.retry}).
+ *
+ * - maxAttempts: tentativas no total (a primeira conta)
+ * - compensationMaxAttempts: tentativas da compensação (estorno), que não passa pelo orçamento
+ * - backoff: EXPONENTIAL_JITTER (padrão), sleep em [0, min(max, base * 2^n)];
+ *   LINEAR reproduz o retry antigo (base * n, sem jitter) para comparação
+ * - baseDelay/maxDelay: parâmetros do backoff
+ * - budget: orçamento de retries por conta (token bucket que enche com sucessos)
+ */
+@ConfigurationProperties("app.retry")
+public record RetryProperties(
+        @DefaultValue("3") int maxAttempts,
+        @DefaultValue("10") int compensationMaxAttempts,
+        @DefaultValue("EXPONENTIAL_JITTER") Backoff backoff,
+        @DefaultValue("10ms") Duration baseDelay,
+        @DefaultValue("250ms") Duration maxDelay,
+        @DefaultValue Budget budget
+) {
+
+    public enum Backoff { EXPONENTIAL_JITTER, LINEAR }
+
+    public record Budget(
+            @DefaultValue("true") boolean enabled,
+            @DefaultValue("10") int maxTokens,
+            @DefaultValue("0.2") double tokensPerSuccess,
+            @DefaultValue("1024") int stripes
+    ) {}
+}
@@ -1,21 +1,56 @@
 package com.jrpbjr.transacao.service;
 
 import com.jrpbjr.transacao.api.AccountResponse;
+import com.jrpbjr.transacao.api.CreateAccountRequest;
+import com.jrpbjr.transacao.domain.Correntista;
+import com.jrpbjr.transacao.repository.CorrentistaCatalog;
 import com.jrpbjr.transacao.repository.CorrentistaRepository;
+import com.jrpbjr.transacao.sharding.ShardRouter;
 import org.springframework.stereotype.Service;
 
 @Service
 public class AccountService {
 
     private final CorrentistaRepository repo;
+    private final CorrentistaCatalog catalog;
+    private final ShardRouter shardRouter;
 
-    public AccountService(CorrentistaRepository repo) {
+    public AccountService(CorrentistaRepository repo, CorrentistaCatalog catalog, ShardRouter shardRouter) {
         this.repo = repo;
+        this.catalog = catalog;
+        this.shardRouter = shardRouter;
     }
 
     public AccountResponse findById(Long id) {
-        var c = repo.findById(id)
+        var c = shardRouter.onShard(id, () -> repo.findById(id))
                 .orElseThrow(() -> new IllegalArgumentException("Correntista não encontrado"));
+        return toResponse(c);
+    }
+
+    /**
+     * Abertura de conta:
+     * - id global alocado no catálogo
+     * - CPF reservado no catálogo (único entre todos os shards)
+     * - conta gravada no shard de hash(id)
+     * São TX separadas (bancos diferentes): se a gravação da conta falhar, a reserva do CPF é desfeita.
+     */
+    public AccountResponse create(CreateAccountRequest req) {
+        long id = shardRouter.onCatalog(catalog::nextId);
+
+        if (!shardRouter.onCatalog(() -> catalog.registerCpf(req.cpf(), id))) {
+            throw new IllegalArgumentException("CPF já cadastrado");
+        }
+
+        try {
+            var c = shardRouter.onShard(id, () -> repo.save(new Correntista(id, req.cpf(), req.nome(), req.saldoInicial())));
+            return toResponse(c);
+        } catch (RuntimeException e) {
+            shardRouter.onCatalog(() -> catalog.unregisterCpf(req.cpf()));
+            throw e;
+        }
+    }
+
+    private AccountResponse toResponse(Correntista c) {
         return new AccountResponse(c.getId(), c.getCpf(), c.getNome(), c.getSaldo());
     }
-}
\ No newline at end of file
+}
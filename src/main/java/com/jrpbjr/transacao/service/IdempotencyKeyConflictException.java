@@ -0,0 +1,15 @@
+package com.jrpbjr.transacao.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * idempotencyKey de PIX já usada por outro pagador: não é replay, é chave reaproveitada.
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class IdempotencyKeyConflictException extends RuntimeException {
+
+    public IdempotencyKeyConflictException(String idempotencyKey) {
+        super("idempotencyKey já usada por outro pagamento: " + idempotencyKey);
+    }
+}
@@ -6,44 +6,65 @@ import com.jrpbjr.transacao.domain.Pagamento;
 import com.jrpbjr.transacao.domain.PaymentStatus;
 import com.jrpbjr.transacao.domain.PaymentType;
 import com.jrpbjr.transacao.integration.PixReceiverClient;
+import com.jrpbjr.transacao.payment.PaymentResult;
 import com.jrpbjr.transacao.payment.PaymentStrategyResolver;
 import com.jrpbjr.transacao.repository.CorrentistaRepository;
 import com.jrpbjr.transacao.repository.PagamentoRepository;
-import jakarta.persistence.OptimisticLockException;
+import com.jrpbjr.transacao.retry.ContentionRetry;
+import com.jrpbjr.transacao.sharding.ShardRouter;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.util.UUID;
 
 @Service
 public class PaymentAppService {
 
-    private static final int MAX_RETRIES = 3;
-
     private final PagamentoRepository pagamentoRepo;
     private final CorrentistaRepository correntistaRepo;
     private final PixReceiverClient receiverClient;
     private final PaymentStrategyResolver resolver;
+    private final ShardRouter shardRouter;
+    private final PaymentTransactions tx;
+    private final ContentionRetry retry;
 
     public PaymentAppService(PagamentoRepository pagamentoRepo,
                              CorrentistaRepository correntistaRepo,
                              PixReceiverClient receiverClient,
-                             PaymentStrategyResolver resolver) {
+                             PaymentStrategyResolver resolver,
+                             ShardRouter shardRouter,
+                             PaymentTransactions tx,
+                             ContentionRetry retry) {
         this.pagamentoRepo = pagamentoRepo;
         this.correntistaRepo = correntistaRepo;
         this.receiverClient = receiverClient;
         this.resolver = resolver;
+        this.shardRouter = shardRouter;
+        this.tx = tx;
+        this.retry = retry;
     }
 
     /**
      * Regras:
      * - PIX exige idempotencyKey
-     * - Se idempotencyKey já existir: devolve o mesmo pagamento (não debita e não chama Feign)
+     * - Se idempotencyKey já existir: devolve o mesmo pagamento (não debita e não chama Feign),
+     *   desde que seja do mesmo pagador; chave de outro pagador -> 409 ({@link IdempotencyKeyConflictException})
+     * - Cartão/Boleto ignoram idempotencyKey (podem repeti-la)
      * - Se for novo: cria pagamento PENDING (TX curta)
+     *   (cada TX curta é um método de {@link PaymentTransactions}, chamado via proxy;
+     *   este método em si não é transacional e não segura conexão entre os passos)
      *   - Cartão/Boleto: processa via Strategy (debita saldo) e finaliza
      *   - PIX: debita (TX curta) -> chama receiver (fora TX) -> aprova ou compensa/estorna
+     *
+     * Sharding: o Pagamento mora no shard do pagador, então o fluxo inteiro roda
+     * fixado em shard(correntistaId). O recebedor pode estar em outro shard; ele
+     * é resolvido do lado do receiver (Feign), e débito/finalize/estorno continuam locais.
      */
     public PaymentResponse createAndProcess(CreatePaymentRequest req) {
+        return shardRouter.onShard(req.correntistaId(), () -> process(req));
+    }
+
+    private PaymentResponse process(CreatePaymentRequest req) {
 
         //  Idempotência (somente PIX)
         if (req.type() == PaymentType.PIX) {
@@ -51,19 +72,26 @@ public class PaymentAppService {
                 throw new IllegalArgumentException("PIX exige idempotencyKey");
             }
 
-            var existing = pagamentoRepo.findByIdempotencyKey(req.idempotencyKey());
+            var existing = pagamentoRepo.findPixByIdempotencyKey(req.idempotencyKey());
             if (existing.isPresent()) {
                 // Já foi processado (APPROVED/REJECTED/PENDING) -> devolve o mesmo resultado
-                return toResponse(existing.get());
+                return toResponse(sameRequestOrConflict(existing.get(), req));
             }
         }
 
         // Cria pagamento e/ou aplica débito (TX curta)
-        UUID pagamentoId = applyDebitWithRetry(req);
+        var debit = applyDebitWithRetry(req);
+        UUID pagamentoId = debit.pagamentoId();
 
         var pagamento = pagamentoRepo.findById(pagamentoId)
                 .orElseThrow(() -> new IllegalStateException("Pagamento não encontrado"));
 
+        // Replay concorrente (mesma idempotencyKey): o pagamento é da outra requisição,
+        // que é quem chama o receiver. Processar aqui creditaria o recebedor duas vezes.
+        if (debit.replay()) {
+            return toResponse(sameRequestOrConflict(pagamento, req));
+        }
+
         // Se já saiu REJECTED (ex: PIX sem receiverKey), devolve
         if (pagamento.getStatus() != PaymentStatus.PENDING) {
             return toResponse(pagamento);
@@ -73,41 +101,53 @@ public class PaymentAppService {
         if (req.type() == PaymentType.CREDIT_CARD || req.type() == PaymentType.BOLETO) {
 
             var strategy = resolver.resolve(req.type());
-            var result = strategy.pay(pagamento);
+            PaymentResult result;
+            try {
+                // cada tentativa é uma TX nova da Strategy (relê saldo/versão do pagador)
+                result = retry.execute("strategy-debit", req.correntistaId(), () -> strategy.pay(pagamento));
+            } catch (RuntimeException e) {
+                // débito não aconteceu (TX da Strategy desfeita): fecha como REJECTED em vez de deixar PENDING
+                finalizeRejectedWithRefund(req.correntistaId(), pagamentoId, e.getMessage());
+                throw e;
+            }
 
             if (result.success()) {
                 // marca para auditoria/consistência (opcional, mas útil)
-                markDebitAppliedIfNeeded(pagamentoId);
-                finalizeApproved(pagamentoId, result.message());
+                tx.markDebitAppliedIfNeeded(pagamentoId);
+                finalizeApprovedWithRetry(req.correntistaId(), pagamentoId, result.message());
             } else {
                 // cartão/boleto: aqui não precisa refundTx (você pode criar finalizeRejected simples),
                 // mas mantendo o fluxo consistente:
-                finalizeRejectedWithRefund(pagamentoId, result.message());
+                finalizeRejectedWithRefund(req.correntistaId(), pagamentoId, result.message());
             }
 
             return toResponse(pagamentoRepo.findById(pagamentoId).orElseThrow());
         }
 
         // ===== 4) PIX: chama receiver (fora de TX) =====
+        PixReceiverClient.ReceivePixResponse resp;
         try {
             var pagador = correntistaRepo.findById(req.correntistaId())
                     .orElseThrow(() -> new IllegalArgumentException("Correntista não encontrado"));
 
-            var resp = receiverClient.receive(
+            resp = receiverClient.receive(
                     new PixReceiverClient.ReceivePixRequest(
                             req.pixReceiverKey(),
                             req.amount(),
                             pagador.getCpf()
                     )
             );
-
-            if (resp.received()) {
-                finalizeApproved(pagamentoId, "PIX OK: " + resp.message());
-            } else {
-                finalizeRejectedWithRefund(pagamentoId, "Receiver recusou: " + resp.message());
-            }
         } catch (Exception ex) {
-            finalizeRejectedWithRefund(pagamentoId, "Falha ao chamar receiver: " + ex.getMessage());
+            finalizeRejectedWithRefund(req.correntistaId(), pagamentoId, "Falha ao chamar receiver: " + ex.getMessage());
+            return toResponse(pagamentoRepo.findById(pagamentoId).orElseThrow());
+        }
+
+        if (resp.received()) {
+            // recebedor já creditado: daqui em diante NUNCA estorna (estornar criaria dinheiro).
+            // Se a finalização falhar de vez, o pagamento fica PENDING com débito e crédito aplicados.
+            finalizeApprovedWithRetry(req.correntistaId(), pagamentoId, "PIX OK: " + resp.message());
+        } else {
+            finalizeRejectedWithRefund(req.correntistaId(), pagamentoId, "Receiver recusou: " + resp.message());
         }
 
         return toResponse(pagamentoRepo.findById(pagamentoId).orElseThrow());
@@ -117,6 +157,14 @@ public class PaymentAppService {
     // Helpers
     // =========================
 
+    // replay só devolve o PIX original para o mesmo pagador; chave reaproveitada por outro -> 409
+    private Pagamento sameRequestOrConflict(Pagamento existing, CreatePaymentRequest req) {
+        if (existing.getTipo() != req.type() || !existing.getCorrentistaId().equals(req.correntistaId())) {
+            throw new IdempotencyKeyConflictException(req.idempotencyKey());
+        }
+        return existing;
+    }
+
     private PaymentResponse toResponse(Pagamento p) {
         return new PaymentResponse(
                 p.getId(),
@@ -128,146 +176,29 @@ public class PaymentAppService {
     }
 
     // -------------------------
-    // TX curta: cria pagamento / debita PIX
-    // -------------------------
-
-    private UUID applyDebitWithRetry(CreatePaymentRequest req) {
-        int attempt = 0;
-        while (true) {
-            try {
-                return applyDebitTx(req);
-            } catch (OptimisticLockException e) {
-                attempt++;
-                if (attempt >= MAX_RETRIES) throw e;
-                sleepBackoff(attempt);
-            }
-        }
-    }
-
-    /**
-     * TX curta:
-     * - (PIX) re-checa idempotencyKey (proteção contra corrida)
-     * - cria Pagamento PENDING
-     * - valida PIX receiverKey
-     * - debita saldo SOMENTE para PIX aqui (cartão/boleto debitam na Strategy)
-     * - marca debitApplied no PIX
-     */
-    @Transactional
-    protected UUID applyDebitTx(CreatePaymentRequest req) {
-
-        // Proteção extra contra corrida (PIX)
-        if (req.type() == PaymentType.PIX && req.idempotencyKey() != null && !req.idempotencyKey().isBlank()) {
-            var existing = pagamentoRepo.findByIdempotencyKey(req.idempotencyKey());
-            if (existing.isPresent()) return existing.get().getId();
-        }
-
-        var pagamento = new Pagamento(
-                req.type(),
-                req.correntistaId(),
-                req.amount(),
-                req.pixReceiverKey(),
-                req.idempotencyKey()
-        );
-        pagamentoRepo.save(pagamento);
-
-        // Cartão/Boleto: não debita aqui -> será debitado na Strategy
-        if (req.type() != PaymentType.PIX) {
-            return pagamento.getId();
-        }
-
-        // PIX: valida receiverKey
-        if (req.pixReceiverKey() == null || req.pixReceiverKey().isBlank()) {
-            pagamento.rejeitado("PIX precisa de chave/CPF do destinatário");
-            pagamentoRepo.save(pagamento);
-            return pagamento.getId();
-        }
-
-        // PIX: debita saldo
-        var correntista = correntistaRepo.findById(req.correntistaId())
-                .orElseThrow(() -> new IllegalArgumentException("Correntista não encontrado"));
-
-        correntista.debitar(req.amount());
-        correntistaRepo.save(correntista);
-
-        pagamento.markDebitApplied();
-        pagamentoRepo.save(pagamento);
-
-        return pagamento.getId();
-    }
-
-    // -------------------------
-    //
+    // Retry em volta das TX curtas (PaymentTransactions)
     // -------------------------
 
-    @Transactional
-    protected void finalizeApproved(UUID pagamentoId, String msg) {
-        var pagamento = pagamentoRepo.findById(pagamentoId)
-                .orElseThrow(() -> new IllegalStateException("Pagamento não encontrado"));
-
-        if (pagamento.getStatus() != PaymentStatus.PENDING) return;
-
-        pagamento.aprovado(msg);
-        pagamentoRepo.save(pagamento);
-    }
-
-    private void finalizeRejectedWithRefund(UUID pagamentoId, String reason) {
-        int attempt = 0;
-        while (true) {
-            try {
-                refundTx(pagamentoId, reason);
-                return;
-            } catch (OptimisticLockException e) {
-                attempt++;
-                if (attempt >= MAX_RETRIES) throw e;
-                sleepBackoff(attempt);
-            }
-        }
-    }
-
-    @Transactional
-    protected void refundTx(UUID pagamentoId, String reason) {
-        var pagamento = pagamentoRepo.findById(pagamentoId)
-                .orElseThrow(() -> new IllegalStateException("Pagamento não encontrado"));
-
-        if (pagamento.getStatus() != PaymentStatus.PENDING) return;
-
-        // refund só faz sentido para PIX (aqui)
-        if (pagamento.isDebitApplied() && pagamento.getTipo() == PaymentType.PIX) {
-            var correntista = correntistaRepo.findById(pagamento.getCorrentistaId())
-                    .orElseThrow(() -> new IllegalArgumentException("Correntista não encontrado"));
-
-            correntista.creditar(pagamento.getValor());
-            correntistaRepo.save(correntista);
+    private PaymentTransactions.DebitOutcome applyDebitWithRetry(CreatePaymentRequest req) {
+        try {
+            return retry.execute("debit", req.correntistaId(), () -> tx.applyDebitTx(req));
+        } catch (DataIntegrityViolationException e) {
+            // Dois PIX com a mesma idempotencyKey passaram juntos pela re-checagem;
+            // a PK de pix_idempotencia barrou o segundo (TX inteira desfeita, sem débito)
+            if (req.type() != PaymentType.PIX || req.idempotencyKey() == null) throw e;
+            var existing = pagamentoRepo.findPixByIdempotencyKey(req.idempotencyKey());
+            if (existing.isEmpty()) throw e;
+            return new PaymentTransactions.DebitOutcome(existing.get().getId(), true);
         }
-
-        pagamento.rejeitado("Operação rejeitada: " + reason);
-        pagamentoRepo.save(pagamento);
     }
 
-    /**
-     * Se cartão/boleto debitou via Strategy e você quer refletir isso no Pagamento,
-     * marca debitApplied=true.
-     *
-     * (Opcional, mas ajuda auditoria e futuro refund/estornos)
-     */
-    @Transactional
-    protected void markDebitAppliedIfNeeded(UUID pagamentoId) {
-        var pagamento = pagamentoRepo.findById(pagamentoId)
-                .orElseThrow(() -> new IllegalStateException("Pagamento não encontrado"));
-
-        if (pagamento.getStatus() != PaymentStatus.PENDING) return;
-
-        if (!pagamento.isDebitApplied()) {
-            pagamento.markDebitApplied();
-            pagamentoRepo.save(pagamento);
-        }
+    // passos que não podem ficar pela metade: fora do orçamento de retry da conta,
+    // com mais tentativas e insistindo também em falha transitória (ex: pool esgotado); ver ContentionRetry
+    private void finalizeApprovedWithRetry(Long correntistaId, UUID pagamentoId, String msg) {
+        retry.compensate("finalize-approved", correntistaId, () -> tx.finalizeApproved(pagamentoId, msg));
     }
 
-    private void sleepBackoff(int attempt) {
-        try {
-            Thread.sleep(30L * attempt);
-        } catch (InterruptedException ignored) {
-            Thread.currentThread().interrupt();
-        }
+    private void finalizeRejectedWithRefund(Long correntistaId, UUID pagamentoId, String reason) {
+        retry.compensate("refund", correntistaId, () -> tx.refundTx(pagamentoId, reason));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,143 @@
+package com.jrpbjr.transacao.service;
+
+import com.jrpbjr.transacao.api.CreatePaymentRequest;
+import com.jrpbjr.transacao.domain.Pagamento;
+import com.jrpbjr.transacao.domain.PaymentStatus;
+import com.jrpbjr.transacao.domain.PaymentType;
+import com.jrpbjr.transacao.repository.CorrentistaRepository;
+import com.jrpbjr.transacao.repository.PagamentoRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.UUID;
+
+/**
+ * Passos transacionais do fluxo de pagamento (cada método = uma TX curta).
+ *
+ * Ficam num bean separado para serem chamados através do proxy do Spring:
+ * {@code @Transactional} em método chamado via {@code this} não abre TX.
+ * A conexão JDBC só é segurada dentro de cada método, nunca entre eles
+ * (em especial, nunca durante a chamada Feign ao receiver).
+ */
+@Service
+public class PaymentTransactions {
+
+    private final PagamentoRepository pagamentoRepo;
+    private final CorrentistaRepository correntistaRepo;
+
+    public PaymentTransactions(PagamentoRepository pagamentoRepo, CorrentistaRepository correntistaRepo) {
+        this.pagamentoRepo = pagamentoRepo;
+        this.correntistaRepo = correntistaRepo;
+    }
+
+    /**
+     * TX curta:
+     * - (PIX) re-checa idempotencyKey (proteção contra corrida)
+     * - cria Pagamento PENDING
+     * - (PIX) reserva a idempotencyKey em pix_idempotencia (chave já usada -> DataIntegrityViolationException)
+     * - valida PIX receiverKey
+     * - debita saldo SOMENTE para PIX aqui (cartão/boleto debitam na Strategy)
+     * - marca debitApplied no PIX
+     *
+     * {@code replay=true}: o pagamento já existia (outra requisição com a mesma
+     * idempotencyKey chegou antes); quem chamou NÃO deve processá-lo de novo.
+     */
+    @Transactional
+    public DebitOutcome applyDebitTx(CreatePaymentRequest req) {
+
+        // Proteção extra contra corrida (PIX)
+        if (req.type() == PaymentType.PIX && req.idempotencyKey() != null && !req.idempotencyKey().isBlank()) {
+            var existing = pagamentoRepo.findPixByIdempotencyKey(req.idempotencyKey());
+            if (existing.isPresent()) return new DebitOutcome(existing.get().getId(), true);
+        }
+
+        var pagamento = new Pagamento(
+                req.type(),
+                req.correntistaId(),
+                req.amount(),
+                req.pixReceiverKey(),
+                req.idempotencyKey()
+        );
+        pagamentoRepo.save(pagamento);
+
+        if (req.type() == PaymentType.PIX && req.idempotencyKey() != null) {
+            pagamentoRepo.reservePixIdempotencyKey(req.idempotencyKey(), pagamento.getId());
+        }
+
+        // Cartão/Boleto: não debita aqui -> será debitado na Strategy
+        if (req.type() != PaymentType.PIX) {
+            return new DebitOutcome(pagamento.getId(), false);
+        }
+
+        // PIX: valida receiverKey
+        if (req.pixReceiverKey() == null || req.pixReceiverKey().isBlank()) {
+            pagamento.rejeitado("PIX precisa de chave/CPF do destinatário");
+            pagamentoRepo.save(pagamento);
+            return new DebitOutcome(pagamento.getId(), false);
+        }
+
+        // PIX: debita saldo
+        var correntista = correntistaRepo.findById(req.correntistaId())
+                .orElseThrow(() -> new IllegalArgumentException("Correntista não encontrado"));
+
+        correntista.debitar(req.amount());
+        correntistaRepo.save(correntista);
+
+        pagamento.markDebitApplied();
+        pagamentoRepo.save(pagamento);
+
+        return new DebitOutcome(pagamento.getId(), false);
+    }
+
+    @Transactional
+    public void finalizeApproved(UUID pagamentoId, String msg) {
+        var pagamento = pagamentoRepo.findById(pagamentoId)
+                .orElseThrow(() -> new IllegalStateException("Pagamento não encontrado"));
+
+        if (pagamento.getStatus() != PaymentStatus.PENDING) return;
+
+        pagamento.aprovado(msg);
+        pagamentoRepo.save(pagamento);
+    }
+
+    @Transactional
+    public void refundTx(UUID pagamentoId, String reason) {
+        var pagamento = pagamentoRepo.findById(pagamentoId)
+                .orElseThrow(() -> new IllegalStateException("Pagamento não encontrado"));
+
+        if (pagamento.getStatus() != PaymentStatus.PENDING) return;
+
+        // refund só faz sentido para PIX (aqui)
+        if (pagamento.isDebitApplied() && pagamento.getTipo() == PaymentType.PIX) {
+            var correntista = correntistaRepo.findById(pagamento.getCorrentistaId())
+                    .orElseThrow(() -> new IllegalArgumentException("Correntista não encontrado"));
+
+            correntista.creditar(pagamento.getValor());
+            correntistaRepo.save(correntista);
+        }
+
+        pagamento.rejeitado("Operação rejeitada: " + reason);
+        pagamentoRepo.save(pagamento);
+    }
+
+    /**
+     * Se cartão/boleto debitou via Strategy e você quer refletir isso no Pagamento,
+     * marca debitApplied=true.
+     *
+     * (Opcional, mas ajuda auditoria e futuro refund/estornos)
+     */
+    @Transactional
+    public void markDebitAppliedIfNeeded(UUID pagamentoId) {
+        var pagamento = pagamentoRepo.findById(pagamentoId)
+                .orElseThrow(() -> new IllegalStateException("Pagamento não encontrado"));
+
+        if (pagamento.getStatus() != PaymentStatus.PENDING) return;
+
+        if (!pagamento.isDebitApplied()) {
+            pagamento.markDebitApplied();
+            pagamentoRepo.save(pagamento);
+        }
+    }
+
+    public record DebitOutcome(UUID pagamentoId, boolean replay) {}
+}
@@ -0,0 +1,55 @@
+package com.jrpbjr.transacao.sharding;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Anel de hash consistente com nós virtuais.
+ *
+ * Cada shard ocupa {@code virtualNodes} posições no anel; uma chave vai para o
+ * primeiro nó no sentido horário. Adicionar/remover um shard só move as chaves
+ * vizinhas desse shard (~1/N), e não o conjunto inteiro como num {@code id % N}.
+ */
+public final class ConsistentHashRing {
+
+    private final NavigableMap<Long, String> ring = new TreeMap<>();
+    private final List<String> shards;
+
+    public ConsistentHashRing(Collection<String> shards, int virtualNodes) {
+        if (shards == null || shards.isEmpty()) throw new IllegalArgumentException("Informe ao menos um shard");
+        if (virtualNodes <= 0) throw new IllegalArgumentException("virtualNodes deve ser > 0");
+
+        this.shards = List.copyOf(shards);
+        for (String shard : this.shards) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.put(hash(shard + "#" + i), shard);
+            }
+        }
+    }
+
+    public List<String> shards() { return shards; }
+
+    public String shardFor(long key) {
+        var entry = ring.ceilingEntry(hash(Long.toString(key)));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    // MD5 só pela boa dispersão (não é uso criptográfico); primeiros 8 bytes viram a posição no anel
+    static long hash(String value) {
+        try {
+            byte[] d = MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8));
+            long h = 0;
+            for (int i = 0; i < 8; i++) {
+                h = (h << 8) | (d[i] & 0xFF);
+            }
+            return h;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 indisponível", e);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.jrpbjr.transacao.sharding;
+
+/**
+ * Shard corrente da thread. Lido pelo {@link ShardRoutingDataSource} no momento
+ * em que uma conexão é obtida, por isso precisa estar definido ANTES de a
+ * transação abrir. Use sempre via {@link ShardRouter}.
+ */
+final class ShardContext {
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {}
+
+    static String current() {
+        return CURRENT.get();
+    }
+
+    /** Define o shard e devolve o anterior (para restaurar em chamadas aninhadas). */
+    static String set(String shard) {
+        String previous = CURRENT.get();
+        CURRENT.set(shard);
+        return previous;
+    }
+
+    static void restore(String previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
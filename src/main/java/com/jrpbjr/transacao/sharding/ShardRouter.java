@@ -0,0 +1,65 @@
+package com.jrpbjr.transacao.sharding;
+
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Decide em qual shard um trabalho roda.
+ *
+ * - {@code Correntista} e seus {@code Pagamento}s ficam no shard de
+ *   {@code hash(correntistaId)} (hash consistente)
+ * - o shard é fixado antes de qualquer TX ({@link #onShard}), então todas as
+ *   TX curtas de um pagamento caem no shard do pagador
+ * - dados globais (alocação de ids, CPF -> conta) ficam só no shard de catálogo,
+ *   {@code app.sharding.catalog-shard} ({@link #onCatalog}); o id é alocado lá ANTES de a
+ *   conta ser gravada em shard(id)
+ *
+ * Com sharding desligado existe um único shard lógico e tudo vira no-op.
+ */
+@Component
+public class ShardRouter {
+
+    public static final String DEFAULT_SHARD = "default";
+
+    private final ConsistentHashRing ring;
+    private final String catalogShard;
+
+    public ShardRouter(ShardingProperties props) {
+        this.ring = props.enabled()
+                ? new ConsistentHashRing(props.shards().keySet(), props.virtualNodes())
+                : new ConsistentHashRing(List.of(DEFAULT_SHARD), 1);
+        this.catalogShard = props.enabled() ? props.catalogShard() : DEFAULT_SHARD;
+    }
+
+    public List<String> shards() {
+        return ring.shards();
+    }
+
+    public String shardFor(Long correntistaId) {
+        if (correntistaId == null) throw new IllegalArgumentException("correntistaId obrigatório para roteamento");
+        return ring.shardFor(correntistaId);
+    }
+
+    public String catalogShard() {
+        return catalogShard;
+    }
+
+    public <T> T onCatalog(Supplier<T> work) {
+        return onNamedShard(catalogShard(), work);
+    }
+
+    public <T> T onShard(Long correntistaId, Supplier<T> work) {
+        return onNamedShard(shardFor(correntistaId), work);
+    }
+
+    public <T> T onNamedShard(String shard, Supplier<T> work) {
+        String previous = ShardContext.set(shard);
+        try {
+            return work.get();
+        } finally {
+            ShardContext.restore(previous);
+        }
+    }
+}
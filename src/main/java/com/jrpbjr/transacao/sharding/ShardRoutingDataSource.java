@@ -0,0 +1,25 @@
+package com.jrpbjr.transacao.sharding;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * DataSource que escolhe o pool do shard corrente ({@link ShardContext}).
+ * Fica abaixo do JPA, então {@code CorrentistaRepository}/{@code PagamentoRepository}
+ * não mudam: quem decide o shard é o {@link ShardRouter}.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardContext.current();
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (var ds : getResolvedDataSources().values()) {
+            if (ds instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
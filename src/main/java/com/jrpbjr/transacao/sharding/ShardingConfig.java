@@ -0,0 +1,82 @@
+package com.jrpbjr.transacao.sharding;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Configuration
+public class ShardingConfig {
+
+    /**
+     * Dimensionamento dos pools dos shards: o mesmo {@code spring.datasource.hikari.*}
+     * do modo sem sharding, aplicado a cada shard.
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    @ConditionalOnProperty(prefix = "app.sharding", name = "enabled", havingValue = "true")
+    public HikariConfig shardPoolSettings() {
+        return new HikariConfig();
+    }
+
+    /**
+     * Só com {@code app.sharding.enabled=true}: substitui o datasource do Boot por
+     * um roteador com um pool Hikari por shard. As migrations são aplicadas em
+     * cada shard aqui (o Flyway do Boot só enxergaria o shard default).
+     */
+    @Bean
+    @Primary
+    @ConditionalOnProperty(prefix = "app.sharding", name = "enabled", havingValue = "true")
+    public DataSource dataSource(ShardingProperties props,
+                                 HikariConfig shardPoolSettings,
+                                 ObjectProvider<MeterRegistry> meterRegistry) {
+        Map<Object, Object> targets = new LinkedHashMap<>();
+        props.shards().forEach((name, shard) -> {
+            var pool = shardPool(name, shard, shardPoolSettings, meterRegistry.getIfAvailable());
+            migrate(pool);
+            targets.put(name, pool);
+        });
+
+        var routing = new ShardRoutingDataSource();
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(targets.get(props.catalogShard()));
+        return routing;
+    }
+
+    private HikariDataSource shardPool(String name, ShardingProperties.Shard shard,
+                                       HikariConfig settings, MeterRegistry registry) {
+        var cfg = new HikariConfig();
+        settings.copyStateTo(cfg);
+        cfg.setPoolName("shard-" + name);
+        cfg.setJdbcUrl(shard.url());
+        cfg.setUsername(shard.username());
+        cfg.setPassword(shard.password());
+
+        // os pools dos shards não são beans, então o Boot não os instrumenta sozinho
+        if (registry != null) {
+            cfg.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+        }
+        return new HikariDataSource(cfg);
+    }
+
+    private void migrate(DataSource ds) {
+        Flyway.configure()
+                .dataSource(ds)
+                .locations("classpath:db/migration")
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load()
+                .migrate();
+    }
+}
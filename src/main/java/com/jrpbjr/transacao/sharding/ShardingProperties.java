@@ -0,0 +1,42 @@
+package com.jrpbjr.transacao.sharding;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Configuração de sharding (prefixo {@code app.sharding}).
+ *
+ * Com {@code enabled=false} (padrão) a aplicação usa o datasource único de
+ * {@code spring.datasource.*}.
+ *
+ * {@code catalogShard} é obrigatório com sharding ligado: guarda o catálogo global
+ * (alocador de ids, CPF -> conta) e é o shard default (metadados do Hibernate na subida).
+ * É explícito porque a ordem do mapa {@code shards} não é garantida (variáveis de
+ * ambiente, property sources mesclados); trocar o catálogo de shard geraria ids repetidos.
+ */
+@ConfigurationProperties("app.sharding")
+public record ShardingProperties(
+        boolean enabled,
+        @DefaultValue("128") int virtualNodes,
+        String catalogShard,
+        Map<String, Shard> shards
+) {
+
+    public ShardingProperties {
+        shards = shards == null ? Map.of() : new LinkedHashMap<>(shards);
+        if (enabled) {
+            if (shards.isEmpty()) {
+                throw new IllegalArgumentException("app.sharding.enabled=true exige ao menos um shard em app.sharding.shards");
+            }
+            if (catalogShard == null || !shards.containsKey(catalogShard)) {
+                throw new IllegalArgumentException("app.sharding.catalog-shard deve ser um dos shards configurados "
+                        + shards.keySet() + ", veio: " + catalogShard);
+            }
+        }
+    }
+
+    public record Shard(String url, String username, String password) {}
+}
@@ -0,0 +1,23 @@
+-- Schema inicial (o que o antigo ddl-auto=update gerava a partir de Correntista/Pagamento).
+-- Bancos que já existiam entram pelo baseline (spring.flyway.baseline-on-migrate) nesta versão.
+
+CREATE TABLE correntista (
+    id      BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    version BIGINT,
+    cpf     VARCHAR(20)    NOT NULL UNIQUE,
+    nome    VARCHAR(120)   NOT NULL,
+    saldo   NUMERIC(19, 2) NOT NULL
+);
+
+CREATE TABLE pagamento (
+    id              UUID PRIMARY KEY,
+    criado_em       TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    tipo            VARCHAR(20)    NOT NULL,
+    correntista_id  BIGINT         NOT NULL,
+    valor           NUMERIC(19, 2) NOT NULL,
+    destinatario    VARCHAR(50),
+    status          VARCHAR(20)    NOT NULL,
+    debit_applied   BOOLEAN        NOT NULL,
+    mensagem        VARCHAR(255),
+    idempotency_key VARCHAR(120)
+);
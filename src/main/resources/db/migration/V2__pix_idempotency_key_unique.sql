@@ -0,0 +1,23 @@
+-- Uma idempotencyKey = um PIX (barra a corrida de replays concorrentes de PIX).
+--
+-- Só PIX: cartão/boleto sempre ignoraram a chave e podem repeti-la à vontade. Não há
+-- índice parcial portável (WHERE tipo = 'PIX'), então a unicidade fica numa tabela
+-- própria, gravada na mesma TX do pagamento e usada para achar o PIX original num replay.
+CREATE TABLE pix_idempotencia (
+    idempotency_key VARCHAR(120) PRIMARY KEY,
+    pagamento_id    UUID         NOT NULL
+);
+
+-- Bancos antigos (baseline na V1) podem ter PIX repetidos na mesma chave (replays
+-- concorrentes de antes da correção): a chave fica com o PIX mais antigo, que é o que
+-- um replay devolve. Nenhuma linha de pagamento é alterada.
+INSERT INTO pix_idempotencia (idempotency_key, pagamento_id)
+SELECT p.idempotency_key, p.id
+  FROM pagamento p
+ WHERE p.tipo = 'PIX'
+   AND p.idempotency_key IS NOT NULL
+   AND NOT EXISTS (SELECT 1
+                     FROM pagamento o
+                    WHERE o.tipo = 'PIX'
+                      AND o.idempotency_key = p.idempotency_key
+                      AND (o.criado_em < p.criado_em OR (o.criado_em = p.criado_em AND o.id < p.id)));
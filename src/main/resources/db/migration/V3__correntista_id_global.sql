@@ -0,0 +1,24 @@
+-- Ids e CPFs globais para o sharding.
+-- O id do correntista é a chave de roteamento (shard = hash(id)), então não pode vir
+-- da identity de cada banco: o mesmo id=1 existiria em todos os shards.
+-- As tabelas abaixo são criadas em todos os bancos, mas só as do shard de catálogo
+-- (app.sharding.catalog-shard) são usadas.
+
+-- Alocador de ids (uma linha por entidade); começa depois do maior id existente
+CREATE TABLE id_alocador (
+    nome    VARCHAR(50) PRIMARY KEY,
+    proximo BIGINT      NOT NULL
+);
+INSERT INTO id_alocador (nome, proximo)
+SELECT 'correntista', COALESCE(MAX(id), 0) + 1 FROM correntista;
+
+-- Id sempre explícito: um insert sem id não pode cair na sequência local do shard
+ALTER TABLE correntista ALTER COLUMN id DROP IDENTITY;
+
+-- CPF -> conta: unicidade do CPF entre todos os shards e busca do recebedor PIX
+CREATE TABLE correntista_cpf (
+    cpf            VARCHAR(20) PRIMARY KEY,
+    correntista_id BIGINT      NOT NULL
+);
+INSERT INTO correntista_cpf (cpf, correntista_id)
+SELECT cpf, id FROM correntista;
@@ -0,0 +1,58 @@
+package com.jrpbjr.transacao;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Migrations sobre um banco "antigo" (schema da V1 com dados de antes da série):
+ * chaves de idempotência repetidas e ids vindos da identity.
+ */
+class FlywayMigrationTest {
+
+    private final DriverManagerDataSource ds = new DriverManagerDataSource(
+            "jdbc:h2:mem:flyway-legado;MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+    private final JdbcTemplate jdbc = new JdbcTemplate(ds);
+
+    @Test
+    void bancoComChavesRepetidasMigraSemPerderPagamentos() {
+        flyway("1").migrate();
+        jdbc.update("INSERT INTO correntista (id, version, cpf, nome, saldo) VALUES (7, 0, '111', 'Legado', 10.00)");
+        pagamento("00000000-0000-0000-0000-000000000001", "2024-01-01T10:00:00Z", "PIX", "pix-ord-0001");
+        pagamento("00000000-0000-0000-0000-000000000002", "2024-01-01T10:00:01Z", "PIX", "pix-ord-0001");
+        pagamento("00000000-0000-0000-0000-000000000003", "2024-01-01T10:00:00Z", "PIX", "pix-ord-0002");
+        pagamento("00000000-0000-0000-0000-000000000004", "2024-01-01T10:00:00Z", "PIX", "pix-ord-0002");
+        pagamento("00000000-0000-0000-0000-000000000005", "2024-01-01T09:00:00Z", "CREDIT_CARD", "pix-ord-0001");
+        pagamento("00000000-0000-0000-0000-000000000006", "2024-01-01T10:00:00Z", "CREDIT_CARD", "card-0001");
+        pagamento("00000000-0000-0000-0000-000000000007", "2024-01-01T10:00:00Z", "PIX", null);
+
+        flyway(null).migrate();
+
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM pagamento", Long.class)).isEqualTo(7);
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM pagamento WHERE idempotency_key IS NOT NULL", Long.class)).isEqualTo(6);
+        // só PIX entra; o mais antigo fica com a chave e empate no horário desempata pelo id
+        assertThat(jdbc.queryForList("SELECT idempotency_key || '=' || pagamento_id FROM pix_idempotencia ORDER BY idempotency_key", String.class))
+                .containsExactly(
+                        "pix-ord-0001=00000000-0000-0000-0000-000000000001",
+                        "pix-ord-0002=00000000-0000-0000-0000-000000000003");
+        // alocador de ids continua depois dos ids antigos
+        assertThat(jdbc.queryForObject("SELECT proximo FROM id_alocador WHERE nome = 'correntista'", Long.class)).isEqualTo(8);
+        assertThat(jdbc.queryForObject("SELECT correntista_id FROM correntista_cpf WHERE cpf = '111'", Long.class)).isEqualTo(7);
+    }
+
+    private Flyway flyway(String target) {
+        var cfg = Flyway.configure().dataSource(ds).locations("classpath:db/migration");
+        if (target != null) cfg.target(target);
+        return cfg.load();
+    }
+
+    private void pagamento(String id, String criadoEm, String tipo, String idempotencyKey) {
+        jdbc.update("""
+                INSERT INTO pagamento (id, criado_em, tipo, correntista_id, valor, status, debit_applied, idempotency_key)
+                VALUES (CAST(? AS UUID), CAST(? AS TIMESTAMP WITH TIME ZONE), ?, 7, 1.00, 'APPROVED', TRUE, ?)""",
+                id, criadoEm, tipo, idempotencyKey);
+    }
+}
@@ -0,0 +1,72 @@
+package com.jrpbjr.transacao.load;
+
+import com.jrpbjr.transacao.domain.PaymentType;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Parâmetros da carga, lidos de system properties ({@code -Dload.*}).
+ *
+ * - accounts / initialBalance: contas semeadas e saldo inicial de cada uma
+ * - requests / concurrency: total de POSTs e workers em loop fechado
+ * - hotRatio / hotAccounts: fração das requisições que cai nas primeiras N contas (skew)
+ * - replayRatio: fração dos PIX que reenviam um idempotencyKey já usado
+ * - mix: pesos PIX/CREDIT_CARD/BOLETO
+ * - stubLatencyMs / stubErrorRate: latência e taxa de erro (503) injetadas no receiver
+ */
+record LoadProfile(
+        int accounts,
+        BigDecimal initialBalance,
+        int requests,
+        int concurrency,
+        double hotRatio,
+        int hotAccounts,
+        double replayRatio,
+        int pixWeight,
+        int cardWeight,
+        int boletoWeight,
+        long stubLatencyMs,
+        double stubErrorRate
+) {
+
+    static LoadProfile fromSystemProperties() {
+        return new LoadProfile(
+                Integer.getInteger("load.accounts", 200),
+                new BigDecimal(System.getProperty("load.initialBalance", "1000000.00")),
+                Integer.getInteger("load.requests", 5_000),
+                Integer.getInteger("load.concurrency", 32),
+                Double.parseDouble(System.getProperty("load.hotRatio", "0.5")),
+                Integer.getInteger("load.hotAccounts", 5),
+                Double.parseDouble(System.getProperty("load.replayRatio", "0.1")),
+                Integer.getInteger("load.mix.pix", 60),
+                Integer.getInteger("load.mix.card", 20),
+                Integer.getInteger("load.mix.boleto", 20),
+                Long.getLong("load.stubLatencyMs", 20),
+                Double.parseDouble(System.getProperty("load.stubErrorRate", "0.05"))
+        );
+    }
+
+    int pickAccountIndex() {
+        var rnd = ThreadLocalRandom.current();
+        int hot = Math.min(hotAccounts, accounts);
+        if (hot > 0 && rnd.nextDouble() < hotRatio) {
+            return rnd.nextInt(hot);
+        }
+        return rnd.nextInt(accounts);
+    }
+
+    PaymentType pickType() {
+        int r = ThreadLocalRandom.current().nextInt(pixWeight + cardWeight + boletoWeight);
+        if (r < pixWeight) return PaymentType.PIX;
+        if (r < pixWeight + cardWeight) return PaymentType.CREDIT_CARD;
+        return PaymentType.BOLETO;
+    }
+
+    @Override
+    public String toString() {
+        return "accounts=%d requests=%d concurrency=%d hot=%.0f%%->%d contas replay=%.0f%% mix=PIX:%d/CARD:%d/BOLETO:%d stub=%dms/%.1f%% erro"
+                .formatted(accounts, requests, concurrency, hotRatio * 100, hotAccounts, replayRatio * 100,
+                        pixWeight, cardWeight, boletoWeight, stubLatencyMs, stubErrorRate * 100);
+    }
+}
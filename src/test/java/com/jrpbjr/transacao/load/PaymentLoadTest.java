@@ -0,0 +1,302 @@
+package com.jrpbjr.transacao.load;
+
+import com.jrpbjr.transacao.api.AccountResponse;
+import com.jrpbjr.transacao.api.CreateAccountRequest;
+import com.jrpbjr.transacao.domain.Correntista;
+import com.jrpbjr.transacao.domain.Pagamento;
+import com.jrpbjr.transacao.domain.PaymentStatus;
+import com.jrpbjr.transacao.domain.PaymentType;
+import com.jrpbjr.transacao.receiver.api.PixReceiveController;
+import com.jrpbjr.transacao.repository.CorrentistaRepository;
+import com.jrpbjr.transacao.repository.PagamentoRepository;
+import com.jrpbjr.transacao.service.AccountService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Carga/soak contra {@code POST /api/payments}, com o receiver PIX em processo.
+ *
+ * Não roda no build normal (tag "load"). Para rodar:
+ * <pre>
+ * ./mvnw test -Pload -Dload.requests=20000 -Dload.concurrency=64 -Dload.hotRatio=0.8
+ * </pre>
+ * Por padrão usa H2 em memória (schema pelas migrations Flyway); para Postgres:
+ * {@code -Dload.datasource.url=jdbc:postgresql://...}
+ * (com {@code -Dload.datasource.username/password}). Admission control ligado por padrão;
+ * {@code -Dload.rateLimit=false} mede a aplicação sem ele (429 aparecem em "status HTTP").
+ * Retry "antes" (linear 30ms*n, sem jitter e sem orçamento) para comparar conflitos/p99:
+ * {@code -Dload.retry.backoff=LINEAR -Dload.retry.baseDelay=30ms -Dload.retry.budget=false}.
+ *
+ * O Feign aponta para um stub ({@code /load-stub/api/pix/receive}) que injeta
+ * latência e 503 ANTES de delegar ao {@link PixReceiveController} real: um erro
+ * injetado nunca credita, então todo PIX rejeitado precisa ser estornado.
+ *
+ * Invariantes:
+ * - soma dos saldos final = inicial - cartão/boleto aprovados (PIX só move dinheiro entre contas semeadas)
+ * - nenhum pagamento PENDING ao final (todo fluxo termina em APPROVED ou REJECTED)
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.DEFINED_PORT, properties = {
+        "server.port=${load.port:18080}",
+        "pix.receiver.base-url=http://localhost:${load.port:18080}/load-stub",
+        "spring.datasource.url=${load.datasource.url:jdbc:h2:mem:load;MODE=PostgreSQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000}",
+        "spring.datasource.username=${load.datasource.username:sa}",
+        "spring.datasource.password=${load.datasource.password:}",
+        "app.rate-limit.enabled=${load.rateLimit:true}",
+        "app.retry.backoff=${load.retry.backoff:EXPONENTIAL_JITTER}",
+        "app.retry.base-delay=${load.retry.baseDelay:10ms}",
+        "app.retry.budget.enabled=${load.retry.budget:true}"
+})
+class PaymentLoadTest {
+
+    private static final LoadProfile PROFILE = LoadProfile.fromSystemProperties();
+    private static final long RUN = System.currentTimeMillis() % 100_000;
+
+    @Autowired
+    AccountService accountService;
+
+    @Autowired
+    CorrentistaRepository correntistaRepo;
+
+    @Autowired
+    PagamentoRepository pagamentoRepo;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @TestConfiguration
+    static class ReceiverStubConfig {
+
+        @Bean
+        ReceiverStub receiverStub(PixReceiveController receiver) {
+            return new ReceiverStub(receiver);
+        }
+    }
+
+    @RestController
+    @RequestMapping("/load-stub/api/pix")
+    static class ReceiverStub {
+
+        private final PixReceiveController receiver;
+
+        ReceiverStub(PixReceiveController receiver) {
+            this.receiver = receiver;
+        }
+
+        @PostMapping("/receive")
+        PixReceiveController.ReceivePixResponse receive(@RequestBody PixReceiveController.ReceivePixRequest req)
+                throws InterruptedException {
+            var rnd = ThreadLocalRandom.current();
+            if (PROFILE.stubLatencyMs() > 0) {
+                // latência com jitter de +-50% para não sincronizar as respostas
+                Thread.sleep(PROFILE.stubLatencyMs() / 2 + rnd.nextLong(PROFILE.stubLatencyMs() + 1));
+            }
+            if (rnd.nextDouble() < PROFILE.stubErrorRate()) {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "erro injetado");
+            }
+            return receiver.receive(req);
+        }
+    }
+
+    @Test
+    void cargaMistaConservaSomaDosSaldos() throws Exception {
+        var contas = seed();
+        var ids = contas.stream().map(AccountResponse::id).collect(Collectors.toSet());
+        var saldoInicial = totalSaldo(ids);
+        var retriesAntes = retryCounters();
+
+        var http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        var uri = URI.create("http://localhost:" + System.getProperty("load.port", "18080") + "/api/payments");
+
+        var pixEnviados = new CopyOnWriteArrayList<String>();
+        var latencias = new long[PROFILE.requests()];
+        var status = new ConcurrentHashMap<Integer, AtomicInteger>();
+        var seq = new AtomicInteger();
+        var replays = new AtomicLong();
+
+        long inicio = System.nanoTime();
+        try (ExecutorService workers = Executors.newFixedThreadPool(PROFILE.concurrency())) {
+            for (int w = 0; w < PROFILE.concurrency(); w++) {
+                workers.submit(() -> {
+                    int n;
+                    while ((n = seq.getAndIncrement()) < PROFILE.requests()) {
+                        String body = nextBody(n, contas, pixEnviados, replays);
+                        var req = HttpRequest.newBuilder(uri)
+                                .header("Content-Type", "application/json")
+                                .timeout(Duration.ofSeconds(60))
+                                .POST(HttpRequest.BodyPublishers.ofString(body))
+                                .build();
+                        long t0 = System.nanoTime();
+                        int code;
+                        try {
+                            code = http.send(req, HttpResponse.BodyHandlers.discarding()).statusCode();
+                        } catch (Exception e) {
+                            code = -1;
+                        }
+                        latencias[n] = System.nanoTime() - t0;
+                        status.computeIfAbsent(code, k -> new AtomicInteger()).incrementAndGet();
+                    }
+                    return null;
+                });
+            }
+            workers.shutdown();
+            assertThat(workers.awaitTermination(30, TimeUnit.MINUTES)).isTrue();
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+
+        var saldoFinal = totalSaldo(ids);
+        var pagamentos = pagamentoRepo.findAll().stream()
+                .filter(p -> ids.contains(p.getCorrentistaId()))
+                .toList();
+        var saidas = pagamentos.stream()
+                .filter(p -> p.getStatus() == PaymentStatus.APPROVED && p.getTipo() != PaymentType.PIX)
+                .map(Pagamento::getValor)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        // nada pode sobrar PENDING: PIX com débito sem estorno ou cartão/boleto órfão de uma falha
+        var pendentes = pagamentos.stream()
+                .filter(p -> p.getStatus() == PaymentStatus.PENDING)
+                .collect(Collectors.groupingBy(p -> p.getTipo() + (p.isDebitApplied() ? "/debitado" : "/sem-debito"),
+                        java.util.TreeMap::new, Collectors.counting()));
+        var retries = retryCounters();
+        retriesAntes.forEach((k, v) -> retries.merge(k, -v, Double::sum));
+
+        Arrays.sort(latencias);
+        System.out.printf("""
+
+                ===== Relatório de carga =====
+                perfil:        %s
+                requisições:   %d em %.2fs -> %.1f req/s
+                replays PIX:   %d
+                status HTTP:   %s
+                latência (ms): p50=%.1f p99=%.1f p999=%.1f max=%.1f
+                retries:       %s
+                pagamentos:    %s
+                PENDING ao final: %s
+                saldo inicial: %s
+                saídas (cartão/boleto aprovados): %s
+                saldo final:   %s (esperado %s)
+                ==============================
+                %n""",
+                PROFILE, PROFILE.requests(), segundos, PROFILE.requests() / segundos,
+                replays.get(),
+                new java.util.TreeMap<>(status),
+                ms(percentile(latencias, 0.50)), ms(percentile(latencias, 0.99)),
+                ms(percentile(latencias, 0.999)), ms(latencias[latencias.length - 1]),
+                retries,
+                pagamentos.stream().collect(Collectors.groupingBy(p -> p.getTipo() + "/" + p.getStatus(),
+                        java.util.TreeMap::new, Collectors.counting())),
+                pendentes,
+                saldoInicial, saidas, saldoFinal, saldoInicial.subtract(saidas));
+
+        assertThat(pendentes).as("pagamentos PENDING ao final da carga").isEmpty();
+        assertThat(saldoFinal).isEqualByComparingTo(saldoInicial.subtract(saidas));
+    }
+
+    // =========================
+    // Helpers
+    // =========================
+
+    private List<AccountResponse> seed() {
+        var novas = new ArrayList<AccountResponse>(PROFILE.accounts());
+        for (int i = 0; i < PROFILE.accounts(); i++) {
+            novas.add(accountService.create(
+                    new CreateAccountRequest("ld%05d-%06d".formatted(RUN, i), "Carga " + i, PROFILE.initialBalance())));
+        }
+        return novas;
+    }
+
+    private String nextBody(int n, List<AccountResponse> contas, List<String> pixEnviados, AtomicLong replays) {
+        var rnd = ThreadLocalRandom.current();
+        var type = PROFILE.pickType();
+
+        if (type == PaymentType.PIX && !pixEnviados.isEmpty() && rnd.nextDouble() < PROFILE.replayRatio()) {
+            replays.incrementAndGet();
+            return pixEnviados.get(rnd.nextInt(pixEnviados.size()));
+        }
+
+        var pagador = contas.get(PROFILE.pickAccountIndex());
+        var valor = BigDecimal.valueOf(rnd.nextLong(100, 2_001)).movePointLeft(2);
+
+        if (type != PaymentType.PIX) {
+            return """
+                    {"type":"%s","correntistaId":%d,"amount":%s}"""
+                    .formatted(type, pagador.id(), valor.toPlainString());
+        }
+
+        AccountResponse recebedor;
+        do {
+            recebedor = contas.get(PROFILE.pickAccountIndex());
+        } while (recebedor.id().equals(pagador.id()));
+
+        String body = """
+                {"type":"PIX","correntistaId":%d,"amount":%s,"pixReceiverKey":"%s","idempotencyKey":"load-%05d-%08d"}"""
+                .formatted(pagador.id(), valor.toPlainString(), recebedor.cpf(), RUN, n);
+        pixEnviados.add(body);
+        return body;
+    }
+
+    private BigDecimal totalSaldo(Set<Long> ids) {
+        return correntistaRepo.findAllById(ids).stream()
+                .map(Correntista::getSaldo)
+                .reduce(BigDecimal.ZERO, BigDecimal::add)
+                .setScale(2, RoundingMode.UNNECESSARY);
+    }
+
+    // payment.retry.conflicts / .exhausted / .budget.rejected, por operação
+    private Map<String, Double> retryCounters() {
+        return meterRegistry.getMeters().stream()
+                .filter(m -> m instanceof Counter && m.getId().getName().startsWith("payment.retry."))
+                .collect(Collectors.toMap(
+                        m -> m.getId().getName().substring("payment.retry.".length()) + "/" + m.getId().getTag("operation"),
+                        m -> ((Counter) m).count(),
+                        Double::sum, java.util.TreeMap::new));
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        int i = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(i, sorted.length - 1))];
+    }
+
+    private static double ms(long nanos) {
+        return nanos / 1e6;
+    }
+}
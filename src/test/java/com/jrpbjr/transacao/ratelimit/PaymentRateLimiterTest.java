@@ -0,0 +1,63 @@
+package com.jrpbjr.transacao.ratelimit;
+
+import com.jrpbjr.transacao.domain.PaymentType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PaymentRateLimiterTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private PaymentRateLimiter limiter(int capacity, double refillPerSecond) {
+        var props = new RateLimitProperties(true, 8,
+                Map.of(PaymentType.PIX, new RateLimitProperties.Limit(capacity, refillPerSecond)));
+        return new PaymentRateLimiter(props, registry);
+    }
+
+    @Test
+    void rajadaAteACapacidadeDepois429ComRetryAfter() {
+        var limiter = limiter(3, 0.5);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.tryAcquire(1L, PaymentType.PIX).allowed()).isTrue();
+        }
+        var negado = limiter.tryAcquire(1L, PaymentType.PIX);
+
+        assertThat(negado.allowed()).isFalse();
+        // 0.5 token/s -> ~2s até o próximo token
+        assertThat(negado.retryAfter()).isBetween(Duration.ofMillis(1_500), Duration.ofSeconds(2));
+        assertThat(negado.retryAfterSeconds()).isEqualTo(2);
+        assertThat(registry.counter("payment.admission", "type", "PIX", "outcome", "rejected").count()).isEqualTo(1);
+    }
+
+    @Test
+    void baldesSeparadosPorContaETipo() {
+        var limiter = limiter(1, 0.1);
+
+        assertThat(limiter.tryAcquire(1L, PaymentType.PIX).allowed()).isTrue();
+        assertThat(limiter.tryAcquire(1L, PaymentType.PIX).allowed()).isFalse();
+
+        // outra conta não é afetada pela conta quente
+        assertThat(limiter.tryAcquire(2L, PaymentType.PIX).allowed()).isTrue();
+        // tipo sem limite configurado passa direto
+        assertThat(limiter.tryAcquire(1L, PaymentType.BOLETO).allowed()).isTrue();
+    }
+
+    @Test
+    void limiteAlteradoEmRuntimeValeParaBaldesExistentes() {
+        var limiter = limiter(1, 0.1);
+        assertThat(limiter.tryAcquire(1L, PaymentType.PIX).allowed()).isTrue();
+        assertThat(limiter.tryAcquire(1L, PaymentType.PIX).allowed()).isFalse();
+
+        limiter.updateLimit(PaymentType.PIX, new RateLimitProperties.Limit(10, 1_000_000));
+
+        assertThat(limiter.tryAcquire(1L, PaymentType.PIX).allowed()).isTrue();
+        assertThat(registry.get("payment.admission.limit.capacity").tag("type", "PIX").gauge().value())
+                .isEqualTo(10);
+    }
+}
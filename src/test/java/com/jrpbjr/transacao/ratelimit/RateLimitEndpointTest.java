@@ -0,0 +1,72 @@
+package com.jrpbjr.transacao.ratelimit;
+
+import com.jrpbjr.transacao.domain.PaymentType;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalManagementPort;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:rate-limit-endpoint;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "management.server.port=0",
+        "management.endpoints.web.exposure.include=health,metrics,ratelimits"
+})
+class RateLimitEndpointTest {
+
+    private final HttpClient http = HttpClient.newHttpClient();
+
+    @LocalServerPort
+    int apiPort;
+
+    @LocalManagementPort
+    int managementPort;
+
+    @Autowired
+    PaymentRateLimiter rateLimiter;
+
+    @Test
+    void ajusteSoPelaPortaDeManagement() throws Exception {
+        var resp = send(managementPort, "POST", "/actuator/ratelimits/BOLETO", """
+                {"capacity": 3, "refillPerSecond": 1.5}""");
+
+        assertThat(resp.statusCode()).isEqualTo(200);
+        assertThat(rateLimiter.limits().get(PaymentType.BOLETO))
+                .isEqualTo(new RateLimitProperties.Limit(3, 1.5));
+    }
+
+    @Test
+    void limiteInvalidoDevolve400() throws Exception {
+        var resp = send(managementPort, "POST", "/actuator/ratelimits/PIX", """
+                {"capacity": 0, "refillPerSecond": 1}""");
+
+        assertThat(resp.statusCode()).isEqualTo(400);
+    }
+
+    @Test
+    void portaDaApiNaoAlteraLimites() throws Exception {
+        var antes = rateLimiter.limits();
+
+        assertThat(send(apiPort, "POST", "/actuator/ratelimits/PIX", """
+                {"capacity": 100000, "refillPerSecond": 100000}""").statusCode()).isEqualTo(404);
+        assertThat(send(apiPort, "GET", "/actuator/ratelimits", "").statusCode()).isEqualTo(404);
+        assertThat(rateLimiter.limits()).isEqualTo(antes);
+    }
+
+    private HttpResponse<String> send(int port, String method, String path, String body) throws Exception {
+        var req = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Content-Type", "application/json")
+                .method(method, body.isEmpty() ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return http.send(req, HttpResponse.BodyHandlers.ofString());
+    }
+}
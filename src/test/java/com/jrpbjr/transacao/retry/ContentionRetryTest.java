@@ -0,0 +1,133 @@
+package com.jrpbjr.transacao.retry;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ContentionRetryTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void limpaInterrupcao() {
+        Thread.interrupted();
+    }
+
+    private ContentionRetry retry(int maxAttempts, int budgetTokens) {
+        var props = new RetryProperties(maxAttempts, 6, RetryProperties.Backoff.EXPONENTIAL_JITTER,
+                Duration.ofMillis(1), Duration.ofMillis(5), new RetryProperties.Budget(true, budgetTokens, 0.2, 16));
+        return new ContentionRetry(props, registry);
+    }
+
+    private static ObjectOptimisticLockingFailureException conflito() {
+        return new ObjectOptimisticLockingFailureException("Correntista", 1L);
+    }
+
+    @Test
+    void repeteConflitoAteDarCerto() {
+        var chamadas = new AtomicInteger();
+
+        var result = retry(3, 10).execute("debit", 1L, () -> {
+            if (chamadas.incrementAndGet() < 3) throw conflito();
+            return "ok";
+        });
+
+        assertThat(result).isEqualTo("ok");
+        assertThat(chamadas).hasValue(3);
+        assertThat(registry.counter("payment.retry.conflicts", "operation", "debit").count()).isEqualTo(2);
+    }
+
+    @Test
+    void desisteNoLimiteDeTentativas() {
+        var chamadas = new AtomicInteger();
+
+        assertThatThrownBy(() -> retry(3, 10).run("debit", 1L, () -> {
+            chamadas.incrementAndGet();
+            throw conflito();
+        })).isInstanceOf(ObjectOptimisticLockingFailureException.class);
+
+        assertThat(chamadas).hasValue(3);
+        assertThat(registry.counter("payment.retry.exhausted", "operation", "debit").count()).isEqualTo(1);
+    }
+
+    @Test
+    void naoRepeteErroQueNaoEhConflito() {
+        var chamadas = new AtomicInteger();
+
+        assertThatThrownBy(() -> retry(3, 10).run("debit", 1L, () -> {
+            chamadas.incrementAndGet();
+            throw new IllegalStateException("Saldo insuficiente");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(chamadas).hasValue(1);
+    }
+
+    @Test
+    void orcamentoEsgotadoFalhaSemRepetir() {
+        var retry = retry(5, 2);
+        var chamadas = new AtomicInteger();
+        Runnable sempreConflita = () -> {
+            chamadas.incrementAndGet();
+            throw conflito();
+        };
+
+        // 2 tokens: primeira chamada gasta os dois retries, a segunda não tem mais orçamento
+        assertThatThrownBy(() -> retry.run("debit", 7L, sempreConflita)).isNotNull();
+        assertThat(chamadas).hasValue(3);
+
+        chamadas.set(0);
+        assertThatThrownBy(() -> retry.run("debit", 7L, sempreConflita)).isNotNull();
+        assertThat(chamadas).hasValue(1);
+        assertThat(registry.counter("payment.retry.budget.rejected", "operation", "debit").count()).isEqualTo(2);
+    }
+
+    @Test
+    void compensacaoIgnoraOrcamentoEsgotado() {
+        var retry = retry(3, 1);
+        assertThatThrownBy(() -> retry.run("debit", 7L, () -> {
+            throw conflito();
+        })).isNotNull();
+
+        // orçamento da conta 7 zerado: o estorno ainda tenta até compensationMaxAttempts (6)
+        var chamadas = new AtomicInteger();
+        retry.compensate("refund", 7L, () -> {
+            if (chamadas.incrementAndGet() < 5) throw conflito();
+        });
+
+        assertThat(chamadas).hasValue(5);
+        assertThat(registry.counter("payment.retry.budget.rejected", "operation", "refund").count()).isZero();
+    }
+
+    @Test
+    void interrupcaoPropagaConflitoEPreservaFlag() {
+        var chamadas = new AtomicInteger();
+        Thread.currentThread().interrupt();
+
+        assertThatThrownBy(() -> retry(3, 10).run("pix-receive", 1L, () -> {
+            chamadas.incrementAndGet();
+            throw conflito();
+        })).isInstanceOf(ObjectOptimisticLockingFailureException.class);
+
+        assertThat(chamadas).hasValue(1);
+        assertThat(Thread.currentThread().isInterrupted()).isTrue();
+    }
+
+    @Test
+    void backoffExponencialComJitterLimitado() {
+        var retry = new ContentionRetry(new RetryProperties(10, 10, RetryProperties.Backoff.EXPONENTIAL_JITTER,
+                Duration.ofMillis(10), Duration.ofMillis(250), new RetryProperties.Budget(true, 10, 0.2, 16)), registry);
+
+        for (int i = 0; i < 1_000; i++) {
+            assertThat(retry.backoff(1)).isBetween(Duration.ZERO, Duration.ofMillis(10));
+            assertThat(retry.backoff(3)).isBetween(Duration.ZERO, Duration.ofMillis(40));
+            assertThat(retry.backoff(10)).isBetween(Duration.ZERO, Duration.ofMillis(250));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.jrpbjr.transacao.service;
+
+import com.jrpbjr.transacao.api.CreateAccountRequest;
+import com.jrpbjr.transacao.api.CreatePaymentRequest;
+import com.jrpbjr.transacao.domain.PaymentStatus;
+import com.jrpbjr.transacao.domain.PaymentType;
+import com.jrpbjr.transacao.integration.PixReceiverClient;
+import com.jrpbjr.transacao.repository.CorrentistaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:idempotency;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password="
+})
+class PaymentIdempotencyTest {
+
+    @MockitoBean
+    PixReceiverClient receiverClient;
+
+    @Autowired
+    PaymentAppService service;
+
+    @Autowired
+    AccountService accountService;
+
+    @Autowired
+    CorrentistaRepository correntistaRepo;
+
+    @BeforeEach
+    void receiverAprova() {
+        when(receiverClient.receive(any())).thenReturn(new PixReceiverClient.ReceivePixResponse(true, "ok"));
+    }
+
+    @Test
+    void replayDePixDevolveOMesmoPagamentoSemDebitarDeNovo() {
+        var pagador = conta("910.000.000-01");
+        var pix = new CreatePaymentRequest(PaymentType.PIX, pagador, new BigDecimal("10.00"), "910.000.000-99", "idem-pix-0001");
+
+        var primeira = service.createAndProcess(pix);
+        var replay = service.createAndProcess(pix);
+
+        assertThat(replay.id()).isEqualTo(primeira.id());
+        assertThat(saldo(pagador)).isEqualByComparingTo("90.00");
+        verify(receiverClient, times(1)).receive(any());
+    }
+
+    @Test
+    void cartaoEBoletoIgnoramAChave() {
+        var pagador = conta("910.000.000-02");
+        service.createAndProcess(new CreatePaymentRequest(PaymentType.PIX, pagador, new BigDecimal("10.00"), "910.000.000-99", "idem-shared-0001"));
+
+        var cartao1 = service.createAndProcess(new CreatePaymentRequest(PaymentType.CREDIT_CARD, pagador, new BigDecimal("5.00"), null, "idem-shared-0001"));
+        var cartao2 = service.createAndProcess(new CreatePaymentRequest(PaymentType.CREDIT_CARD, pagador, new BigDecimal("5.00"), null, "idem-shared-0001"));
+        var boleto = service.createAndProcess(new CreatePaymentRequest(PaymentType.BOLETO, pagador, new BigDecimal("5.00"), null, "idem-shared-0001"));
+
+        assertThat(cartao1.type()).isEqualTo(PaymentType.CREDIT_CARD);
+        assertThat(cartao2.id()).isNotEqualTo(cartao1.id());
+        assertThat(boleto.type()).isEqualTo(PaymentType.BOLETO);
+        assertThat(boleto.status()).isEqualTo(PaymentStatus.APPROVED);
+        assertThat(saldo(pagador)).isEqualByComparingTo("75.00");
+    }
+
+    @Test
+    void chaveDePixDeOutroPagadorEhConflito() {
+        var dono = conta("910.000.000-03");
+        var outro = conta("910.000.000-04");
+        service.createAndProcess(new CreatePaymentRequest(PaymentType.PIX, dono, new BigDecimal("10.00"), "910.000.000-99", "idem-pix-0002"));
+
+        assertThatThrownBy(() -> service.createAndProcess(
+                new CreatePaymentRequest(PaymentType.PIX, outro, new BigDecimal("10.00"), "910.000.000-99", "idem-pix-0002")))
+                .isInstanceOf(IdempotencyKeyConflictException.class);
+        assertThat(saldo(outro)).isEqualByComparingTo("100.00");
+    }
+
+    private Long conta(String cpf) {
+        return accountService.create(new CreateAccountRequest(cpf, "Conta " + cpf, new BigDecimal("100.00"))).id();
+    }
+
+    private BigDecimal saldo(Long id) {
+        return correntistaRepo.findById(id).orElseThrow().getSaldo();
+    }
+}
@@ -0,0 +1,147 @@
+package com.jrpbjr.transacao.service;
+
+import com.jrpbjr.transacao.api.CreateAccountRequest;
+import com.jrpbjr.transacao.api.CreatePaymentRequest;
+import com.jrpbjr.transacao.domain.PaymentStatus;
+import com.jrpbjr.transacao.domain.PaymentType;
+import com.jrpbjr.transacao.integration.PixReceiverClient;
+import com.jrpbjr.transacao.repository.CorrentistaRepository;
+import com.jrpbjr.transacao.repository.PagamentoRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:tx-boundary;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password="
+})
+class PaymentTransactionBoundaryTest {
+
+    @MockitoBean
+    PixReceiverClient receiverClient;
+
+    @MockitoSpyBean
+    PaymentTransactions tx;
+
+    @Autowired
+    PaymentAppService service;
+
+    @Autowired
+    AccountService accountService;
+
+    @Autowired
+    CorrentistaRepository correntistaRepo;
+
+    @Autowired
+    PagamentoRepository pagamentoRepo;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    void pixNaoSeguraConexaoDuranteChamadaAoReceiver() throws Exception {
+        var pagador = accountService.create(new CreateAccountRequest("900.000.000-01", "Pagador", new BigDecimal("100.00")));
+        var pool = dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean();
+
+        var txAtivaNoFeign = new AtomicBoolean(true);
+        var conexoesAtivasNoFeign = new AtomicInteger(-1);
+        when(receiverClient.receive(any())).thenAnswer(inv -> {
+            txAtivaNoFeign.set(TransactionSynchronizationManager.isActualTransactionActive());
+            conexoesAtivasNoFeign.set(pool.getActiveConnections());
+            return new PixReceiverClient.ReceivePixResponse(true, "ok");
+        });
+
+        var resp = service.createAndProcess(new CreatePaymentRequest(
+                PaymentType.PIX, pagador.id(), new BigDecimal("10.00"), "900.000.000-02", "tx-boundary-0001"));
+
+        assertThat(resp.status()).isEqualTo(PaymentStatus.APPROVED);
+        assertThat(txAtivaNoFeign).isFalse();
+        assertThat(conexoesAtivasNoFeign).hasValue(0);
+        assertThat(correntistaRepo.findById(pagador.id()).orElseThrow().getSaldo())
+                .isEqualByComparingTo("90.00");
+    }
+
+    @Test
+    void debitoPixRodaNumaTxReal() {
+        var pagador = accountService.create(new CreateAccountRequest("900.000.000-03", "Sem saldo", new BigDecimal("5.00")));
+        long pagamentosAntes = pagamentoRepo.count();
+
+        // saldo insuficiente depois do Pagamento ter sido salvo: a TX inteira precisa voltar
+        assertThatThrownBy(() -> service.createAndProcess(new CreatePaymentRequest(
+                PaymentType.PIX, pagador.id(), new BigDecimal("10.00"), "900.000.000-02", "tx-boundary-0002")))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(pagamentoRepo.count()).isEqualTo(pagamentosAntes);
+    }
+
+    @Test
+    void finalizacaoQueFalhaDepoisDoCreditoNaoEstorna() {
+        var pagador = accountService.create(new CreateAccountRequest("900.000.000-04", "Pagador", new BigDecimal("100.00")));
+        when(receiverClient.receive(any())).thenReturn(new PixReceiverClient.ReceivePixResponse(true, "ok"));
+        // pool esgotado na primeira tentativa de finalizar; a segunda passa
+        doThrow(new CannotCreateTransactionException("pool esgotado"))
+                .doCallRealMethod()
+                .when(tx).finalizeApproved(any(), any());
+
+        try {
+            var resp = service.createAndProcess(new CreatePaymentRequest(
+                    PaymentType.PIX, pagador.id(), new BigDecimal("10.00"), "900.000.000-02", "tx-boundary-0003"));
+
+            assertThat(resp.status()).isEqualTo(PaymentStatus.APPROVED);
+            assertThat(correntistaRepo.findById(pagador.id()).orElseThrow().getSaldo())
+                    .isEqualByComparingTo("90.00");
+        } finally {
+            reset(tx);
+        }
+    }
+
+    @Test
+    void finalizacaoQueNuncaPassaDepoisDoCreditoNaoViraEstorno() {
+        var pagador = accountService.create(new CreateAccountRequest("900.000.000-05", "Pagador", new BigDecimal("100.00")));
+        when(receiverClient.receive(any())).thenReturn(new PixReceiverClient.ReceivePixResponse(true, "ok"));
+        doThrow(new CannotCreateTransactionException("pool esgotado")).when(tx).finalizeApproved(any(), any());
+
+        try {
+            assertThatThrownBy(() -> service.createAndProcess(new CreatePaymentRequest(
+                    PaymentType.PIX, pagador.id(), new BigDecimal("10.00"), "900.000.000-02", "tx-boundary-0004")))
+                    .isInstanceOf(CannotCreateTransactionException.class);
+        } finally {
+            reset(tx);
+        }
+
+        // recebedor já creditado: o pagador continua debitado (sem estorno) e o pagamento fica pendente
+        assertThat(correntistaRepo.findById(pagador.id()).orElseThrow().getSaldo())
+                .isEqualByComparingTo("90.00");
+        assertThat(pagamentoRepo.findPixByIdempotencyKey("tx-boundary-0004").orElseThrow().getStatus())
+                .isEqualTo(PaymentStatus.PENDING);
+    }
+
+    @Test
+    void expoeMetricasDeSaturacaoDoPool() {
+        assertThat(meterRegistry.find("hikaricp.connections.active").tag("pool", "payer-pool").gauge()).isNotNull();
+        assertThat(meterRegistry.find("hikaricp.connections.pending").tag("pool", "payer-pool").gauge()).isNotNull();
+        assertThat(meterRegistry.find("hikaricp.connections.acquire").tag("pool", "payer-pool").timer()).isNotNull();
+    }
+}
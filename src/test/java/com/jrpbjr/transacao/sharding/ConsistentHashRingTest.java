@@ -0,0 +1,52 @@
+package com.jrpbjr.transacao.sharding;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConsistentHashRingTest {
+
+    @Test
+    void mesmaContaSempreNoMesmoShard() {
+        var a = new ConsistentHashRing(List.of("shard0", "shard1", "shard2"), 128);
+        var b = new ConsistentHashRing(List.of("shard0", "shard1", "shard2"), 128);
+
+        for (long id = 1; id <= 1_000; id++) {
+            assertThat(a.shardFor(id)).isEqualTo(b.shardFor(id));
+        }
+    }
+
+    @Test
+    void distribuiContasEntreOsShards() {
+        var ring = new ConsistentHashRing(List.of("shard0", "shard1", "shard2"), 128);
+        var count = new HashMap<String, Integer>();
+
+        for (long id = 1; id <= 30_000; id++) {
+            count.merge(ring.shardFor(id), 1, Integer::sum);
+        }
+
+        assertThat(count).hasSize(3);
+        assertThat(count.values()).allSatisfy(n -> assertThat(n).isBetween(7_000, 13_000));
+    }
+
+    @Test
+    void novoShardMoveSoUmaFracaoDasContas() {
+        var antes = new ConsistentHashRing(List.of("shard0", "shard1", "shard2"), 128);
+        var depois = new ConsistentHashRing(List.of("shard0", "shard1", "shard2", "shard3"), 128);
+
+        int movidas = 0;
+        for (long id = 1; id <= 10_000; id++) {
+            String novo = depois.shardFor(id);
+            if (!novo.equals(antes.shardFor(id))) {
+                // quem mudou de lugar só pode ter ido para o shard novo
+                assertThat(novo).isEqualTo("shard3");
+                movidas++;
+            }
+        }
+
+        assertThat(movidas).isBetween(1_500, 3_500);
+    }
+}
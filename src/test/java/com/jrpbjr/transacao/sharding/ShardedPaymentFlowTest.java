@@ -0,0 +1,160 @@
+package com.jrpbjr.transacao.sharding;
+
+import com.jrpbjr.transacao.api.AccountResponse;
+import com.jrpbjr.transacao.api.CreateAccountRequest;
+import com.jrpbjr.transacao.api.CreatePaymentRequest;
+import com.jrpbjr.transacao.domain.PaymentStatus;
+import com.jrpbjr.transacao.domain.PaymentType;
+import com.jrpbjr.transacao.integration.PixReceiverClient;
+import com.jrpbjr.transacao.receiver.api.PixReceiveController;
+import com.jrpbjr.transacao.service.AccountService;
+import com.jrpbjr.transacao.service.PaymentAppService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.when;
+
+/**
+ * Fluxo de pagamento com sharding ligado em dois bancos H2 locais.
+ * O Feign é trocado por uma chamada direta ao {@link PixReceiveController} real,
+ * então o crédito roda de fato no shard do recebedor.
+ */
+@SpringBootTest(properties = {
+        "app.sharding.enabled=true",
+        "app.sharding.catalog-shard=a",
+        "app.sharding.shards.a.url=" + ShardedPaymentFlowTest.SHARD_A,
+        "app.sharding.shards.a.username=sa",
+        "app.sharding.shards.a.password=",
+        "app.sharding.shards.b.url=" + ShardedPaymentFlowTest.SHARD_B,
+        "app.sharding.shards.b.username=sa",
+        "app.sharding.shards.b.password="
+})
+class ShardedPaymentFlowTest {
+
+    static final String SHARD_A = "jdbc:h2:mem:sharded-flow-a;MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+    static final String SHARD_B = "jdbc:h2:mem:sharded-flow-b;MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+
+    // acesso direto a cada banco, por fora do roteamento, para conferir onde cada linha foi parar
+    private static final Map<String, JdbcTemplate> BANCOS = Map.of(
+            "a", new JdbcTemplate(new DriverManagerDataSource(SHARD_A, "sa", "")),
+            "b", new JdbcTemplate(new DriverManagerDataSource(SHARD_B, "sa", "")));
+
+    private static final AtomicInteger CPF = new AtomicInteger();
+
+    @MockitoBean
+    PixReceiverClient receiverClient;
+
+    @Autowired
+    PixReceiveController receiver;
+
+    @Autowired
+    PaymentAppService payments;
+
+    @Autowired
+    AccountService accounts;
+
+    @Autowired
+    ShardRouter shardRouter;
+
+    @BeforeEach
+    void receiverEmProcesso() {
+        when(receiverClient.receive(any())).thenAnswer(inv -> {
+            PixReceiverClient.ReceivePixRequest r = inv.getArgument(0);
+            var resp = receiver.receive(new PixReceiveController.ReceivePixRequest(r.receiverKey(), r.amount(), r.fromCpf()));
+            return new PixReceiverClient.ReceivePixResponse(resp.received(), resp.message());
+        });
+    }
+
+    @Test
+    void pixEntreShardsDebitaNoPagadorECreditaNoRecebedor() {
+        var pagador = contaNoShard("a", "100.00");
+        var recebedor = contaNoShard("b", "10.00");
+
+        var resp = payments.createAndProcess(new CreatePaymentRequest(
+                PaymentType.PIX, pagador.id(), new BigDecimal("30.00"), recebedor.cpf(), "sharded-pix-0001"));
+
+        assertThat(resp.status()).isEqualTo(PaymentStatus.APPROVED);
+        assertThat(saldo("a", pagador.id())).isEqualByComparingTo("70.00");
+        assertThat(saldo("b", recebedor.id())).isEqualByComparingTo("40.00");
+        assertThat(pagamentos("a", resp.id())).isEqualTo(1);
+        assertThat(pagamentos("b", resp.id())).isZero();
+    }
+
+    @Test
+    void estornoEntreShardsDevolveNoShardDoPagador() {
+        var pagador = contaNoShard("b", "100.00");
+        var recebedor = contaNoShard("a", "10.00");
+        doThrow(new IllegalStateException("timeout simulado")).when(receiverClient).receive(any());
+
+        var resp = payments.createAndProcess(new CreatePaymentRequest(
+                PaymentType.PIX, pagador.id(), new BigDecimal("30.00"), recebedor.cpf(), "sharded-pix-0002"));
+
+        assertThat(resp.status()).isEqualTo(PaymentStatus.REJECTED);
+        assertThat(saldo("b", pagador.id())).isEqualByComparingTo("100.00");
+        assertThat(saldo("a", recebedor.id())).isEqualByComparingTo("10.00");
+        assertThat(pagamentos("b", resp.id())).isEqualTo(1);
+    }
+
+    @Test
+    void idsSaoGlobaisEntreOsShards() {
+        var emA = contaNoShard("a", "1.00");
+        var emB = contaNoShard("b", "1.00");
+
+        assertThat(emA.id()).isNotEqualTo(emB.id());
+        assertThat(contas("b", emA.id())).isZero();
+        assertThat(contas("a", emB.id())).isZero();
+        assertThat(accounts.findById(emB.id()).cpf()).isEqualTo(emB.cpf());
+    }
+
+    @Test
+    void cpfUnicoEntreOsShards() {
+        var existente = contaNoShard("a", "1.00");
+
+        // o próximo id pode cair no outro shard: a unicidade vem do catálogo, não da constraint local
+        assertThatThrownBy(() -> accounts.create(new CreateAccountRequest(existente.cpf(), "Duplicado", BigDecimal.ONE)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(BANCOS.get("a").queryForObject("SELECT COUNT(*) FROM correntista WHERE cpf = ?", Long.class, existente.cpf())
+                + BANCOS.get("b").queryForObject("SELECT COUNT(*) FROM correntista WHERE cpf = ?", Long.class, existente.cpf()))
+                .isEqualTo(1);
+    }
+
+    // =========================
+    // Helpers
+    // =========================
+
+    private AccountResponse contaNoShard(String shard, String saldo) {
+        while (true) {
+            var conta = accounts.create(new CreateAccountRequest(
+                    "sh-%06d".formatted(CPF.incrementAndGet()), "Conta " + shard, new BigDecimal(saldo)));
+            if (shardRouter.shardFor(conta.id()).equals(shard)) {
+                return conta;
+            }
+        }
+    }
+
+    private BigDecimal saldo(String shard, Long id) {
+        return BANCOS.get(shard).queryForObject("SELECT saldo FROM correntista WHERE id = ?", BigDecimal.class, id);
+    }
+
+    private long contas(String shard, Long id) {
+        return BANCOS.get(shard).queryForObject("SELECT COUNT(*) FROM correntista WHERE id = ?", Long.class, id);
+    }
+
+    private long pagamentos(String shard, UUID id) {
+        return BANCOS.get(shard).queryForObject("SELECT COUNT(*) FROM pagamento WHERE id = ?", Long.class, id);
+    }
+}
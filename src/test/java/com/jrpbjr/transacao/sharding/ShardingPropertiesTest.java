@@ -0,0 +1,38 @@
+package com.jrpbjr.transacao.sharding;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ShardingPropertiesTest {
+
+    private static final Map<String, ShardingProperties.Shard> SHARDS = Map.of(
+            "shard0", new ShardingProperties.Shard("jdbc:h2:mem:s0", "sa", ""),
+            "shard1", new ShardingProperties.Shard("jdbc:h2:mem:s1", "sa", ""));
+
+    @Test
+    void catalogoExplicitoIndependeDaOrdemDosShards() {
+        var router = new ShardRouter(new ShardingProperties(true, 128, "shard1", SHARDS));
+
+        assertThat(router.catalogShard()).isEqualTo("shard1");
+    }
+
+    @Test
+    void catalogoAusenteOuDesconhecidoFalhaNaSubida() {
+        assertThatThrownBy(() -> new ShardingProperties(true, 128, null, SHARDS))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("app.sharding.catalog-shard");
+        assertThatThrownBy(() -> new ShardingProperties(true, 128, "shard9", SHARDS))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void semShardingCatalogoEhOShardDefault() {
+        var router = new ShardRouter(new ShardingProperties(false, 128, null, null));
+
+        assertThat(router.catalogShard()).isEqualTo(ShardRouter.DEFAULT_SHARD);
+    }
+}